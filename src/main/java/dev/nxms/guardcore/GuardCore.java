@@ -17,6 +17,7 @@ public class GuardCore extends JavaPlugin {
     private static GuardCore instance;
     private ConfigManager configManager;
     private MessageManager messageManager;
+    private TaskGovernor taskGovernor;
     private BlockDespawnManager blockDespawnManager;
     private EntityLimitManager entityLimitManager;
     private EntitySpawnTimeManager entitySpawnTimeManager;
@@ -41,9 +42,15 @@ public class GuardCore extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        // Zapisanie stanu punktów spawnu razem z konfiguracją
+        if (entitySpawnPointManager != null) {
+            entitySpawnPointManager.shutdown();
+        }
+
         // Zapisanie konfiguracji przed wyłączeniem
         if (configManager != null) {
             configManager.saveConfig();
+            configManager.shutdown();
             getLogger().info("Plugin configuration has been saved successfully.");
         }
 
@@ -52,6 +59,11 @@ public class GuardCore extends JavaPlugin {
             blockDespawnManager.shutdown();
         }
 
+        // Zatrzymanie liczników entity
+        if (entityLimitManager != null) {
+            entityLimitManager.shutdown();
+        }
+
         // Wyczyść bypassy
         if (bypassManager != null) {
             bypassManager.clearAll();
@@ -66,7 +78,9 @@ public class GuardCore extends JavaPlugin {
      */
     private void initializeManagers() {
         configManager = new ConfigManager(this);
+        configManager.startSaving();
         messageManager = new MessageManager(this);
+        taskGovernor = new TaskGovernor(this);
         blockDespawnManager = new BlockDespawnManager(this);
         entityLimitManager = new EntityLimitManager(this);
         entitySpawnTimeManager = new EntitySpawnTimeManager(this);
@@ -98,6 +112,11 @@ public class GuardCore extends JavaPlugin {
         getServer().getPluginManager().registerEvents(new FluidListener(this), this);
         getServer().getPluginManager().registerEvents(new RedstoneListener(this), this);
         getServer().getPluginManager().registerEvents(new PlayerQuitListener(this), this);
+        getServer().getPluginManager().registerEvents(new ChunkListener(this), this);
+        getServer().getPluginManager().registerEvents(new WorldListener(this), this);
+        getServer().getPluginManager().registerEvents(new EntityTrackingListener(this), this);
+        getServer().getPluginManager().registerEvents(new ServerTickListener(this), this);
+        getServer().getPluginManager().registerEvents(new SpawnPointBlockListener(this), this);
 
         getLogger().info("Listeners has been initialized successfully.");
     }
@@ -108,6 +127,7 @@ public class GuardCore extends JavaPlugin {
     public void reload() {
         configManager.reloadConfig();
         messageManager.reload();
+        taskGovernor.reload();
         blockDespawnManager.reload();
         entitySpawnPointManager.reload();
 
@@ -129,6 +149,10 @@ public class GuardCore extends JavaPlugin {
         return messageManager;
     }
 
+    public TaskGovernor getTaskGovernor() {
+        return taskGovernor;
+    }
+
     public BlockDespawnManager getBlockDespawnManager() {
         return blockDespawnManager;
     }
@@ -2,7 +2,12 @@ package dev.nxms.guardcore.commands;
 
 import dev.nxms.guardcore.GuardCore;
 import dev.nxms.guardcore.config.ConfigManager;
+import dev.nxms.guardcore.config.LimitScope;
 import dev.nxms.guardcore.config.MessageManager;
+import dev.nxms.guardcore.config.SaveCoordinator;
+import dev.nxms.guardcore.config.SpawnPoint;
+import dev.nxms.guardcore.managers.BlockDespawnManager;
+import dev.nxms.guardcore.managers.TaskGovernor;
 import dev.nxms.guardcore.utils.PermissionUtils;
 import dev.nxms.guardcore.utils.TimeParser;
 import org.bukkit.Bukkit;
@@ -14,6 +19,7 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
@@ -65,6 +71,15 @@ public class GuardCoreCommand implements CommandExecutor {
             case "bypass":
                 handleBypass(sender, args);
                 break;
+            case "storage":
+                handleStorage(sender, args);
+                break;
+            case "despawn":
+                handleDespawn(sender, args);
+                break;
+            case "governor":
+                handleGovernor(sender, args);
+                break;
             default:
                 messages.send(sender, "unknown-command");
                 break;
@@ -330,6 +345,12 @@ public class GuardCoreCommand implements CommandExecutor {
             case "entityspawnpointtime":
                 handleSetEntitySpawnPointTime(sender, args);
                 break;
+            case "entityspawnpointmaxalive":
+                handleSetEntitySpawnPointMaxAlive(sender, args);
+                break;
+            case "entityspawnpointcount":
+                handleSetEntitySpawnPointCount(sender, args);
+                break;
             default:
                 messages.send(sender, "unknown-command");
                 break;
@@ -601,12 +622,19 @@ public class GuardCoreCommand implements CommandExecutor {
             return;
         }
 
-        config.setEntityLimit(worldName, entityName, limit);
+        LimitScope scope = args.length >= 6 ? LimitScope.fromName(args[5]) : LimitScope.WORLD;
+        if (scope == null) {
+            messages.send(sender, "invalid-arguments", MessageManager.placeholders("command", "entityLimit"));
+            return;
+        }
+
+        config.setEntityLimit(worldName, scope, entityName, limit);
 
         messages.send(sender, "entitylimit-added", MessageManager.placeholders(
                 "limit", String.valueOf(limit),
                 "entity", entityName,
-                "world", worldName
+                "world", worldName,
+                "scope", scope.getName()
         ));
     }
 
@@ -654,8 +682,8 @@ public class GuardCoreCommand implements CommandExecutor {
         Location location = player.getLocation();
         config.addEntitySpawnPoint(worldName, pointName, entityName, location, intervalTicks);
 
-        // Przeładuj EntitySpawnPointManager żeby uwzględnił nowy punkt
-        plugin.getEntitySpawnPointManager().reload();
+        // Zaplanuj tylko nowy punkt - pozostałe punkty zachowują swoje fazy
+        plugin.getEntitySpawnPointManager().updateSpawnPoint(worldName, pointName);
 
         String intervalDisplay = TimeParser.formatDuration(intervalMs);
         messages.send(sender, "entityspawnpoint-added", MessageManager.placeholders(
@@ -681,7 +709,7 @@ public class GuardCoreCommand implements CommandExecutor {
 
         if (args.length >= 4) {
             String pointName = args[3];
-            Map<String, Object> point = config.getEntitySpawnPoint(worldName, pointName);
+            SpawnPoint point = config.getEntitySpawnPoint(worldName, pointName);
 
             if (point == null) {
                 messages.send(sender, "entityspawnpoint-not-found", MessageManager.placeholders(
@@ -691,21 +719,25 @@ public class GuardCoreCommand implements CommandExecutor {
                 return;
             }
 
-            long intervalTicks = (Long) point.get("interval");
-            long intervalMs = intervalTicks * 50;
+            long intervalMs = point.getIntervalTicks() * 50;
             String intervalDisplay = TimeParser.formatDuration(intervalMs);
+            int maxAlive = point.getMaxAlive();
+            int alive = plugin.getEntitySpawnPointManager().getAliveCount(worldName, pointName);
 
             messages.send(sender, "entityspawnpoint-info", MessageManager.placeholders(
                     "name", pointName,
                     "world", worldName,
-                    "entity", (String) point.get("entity"),
-                    "x", String.format("%.2f", (Double) point.get("x")),
-                    "y", String.format("%.2f", (Double) point.get("y")),
-                    "z", String.format("%.2f", (Double) point.get("z")),
-                    "interval", intervalDisplay
+                    "entity", point.getEntityType().name(),
+                    "x", String.format("%.2f", point.getX()),
+                    "y", String.format("%.2f", point.getY()),
+                    "z", String.format("%.2f", point.getZ()),
+                    "interval", intervalDisplay,
+                    "count", String.valueOf(point.getCount()),
+                    "alive", String.valueOf(Math.max(0, alive)),
+                    "max_alive", maxAlive > 0 ? String.valueOf(maxAlive) : messages.getRaw("entityspawnpoint-no-limit")
             ));
         } else {
-            Map<String, Map<String, Object>> points = config.getAllEntitySpawnPoints(worldName);
+            Map<String, SpawnPoint> points = config.getAllEntitySpawnPoints(worldName);
 
             if (points.isEmpty()) {
                 messages.send(sender, "entityspawnpoint-list-empty", MessageManager.placeholders("world", worldName));
@@ -714,18 +746,16 @@ public class GuardCoreCommand implements CommandExecutor {
 
             messages.send(sender, "entityspawnpoint-list-header", MessageManager.placeholders("world", worldName));
 
-            for (Map.Entry<String, Map<String, Object>> entry : points.entrySet()) {
-                Map<String, Object> point = entry.getValue();
-                long intervalTicks = (Long) point.get("interval");
-                long intervalMs = intervalTicks * 50;
+            for (SpawnPoint point : points.values()) {
+                long intervalMs = point.getIntervalTicks() * 50;
                 String intervalDisplay = TimeParser.formatDuration(intervalMs);
 
                 messages.send(sender, "entityspawnpoint-list-item", MessageManager.placeholders(
-                        "name", entry.getKey(),
-                        "entity", (String) point.get("entity"),
-                        "x", String.format("%.0f", (Double) point.get("x")),
-                        "y", String.format("%.0f", (Double) point.get("y")),
-                        "z", String.format("%.0f", (Double) point.get("z")),
+                        "name", point.getName(),
+                        "entity", point.getEntityType().name(),
+                        "x", String.format("%.0f", point.getX()),
+                        "y", String.format("%.0f", point.getY()),
+                        "z", String.format("%.0f", point.getZ()),
                         "interval", intervalDisplay
                 ));
             }
@@ -795,8 +825,8 @@ public class GuardCoreCommand implements CommandExecutor {
             return;
         }
 
-        // przestaw task dla tego konkretnego punktu
-        plugin.getEntitySpawnPointManager().updateSpawnPointInterval(worldName, pointName, intervalTicks);
+        // przestaw tylko ten konkretny punkt
+        plugin.getEntitySpawnPointManager().updateSpawnPoint(worldName, pointName);
 
         messages.send(sender, "entityspawnpointtime-set", MessageManager.placeholders(
                 "name", pointName,
@@ -805,6 +835,100 @@ public class GuardCoreCommand implements CommandExecutor {
         ));
     }
 
+    private void handleSetEntitySpawnPointMaxAlive(CommandSender sender, String[] args) {
+        if (args.length < 5) {
+            messages.send(sender, "invalid-arguments",
+                    MessageManager.placeholders("command", "entitySpawnPointMaxAlive"));
+            return;
+        }
+
+        String worldName = args[2];
+        String pointName = args[3];
+
+        if (!isValidWorld(worldName)) {
+            messages.send(sender, "world-not-found", MessageManager.placeholders("world", worldName));
+            return;
+        }
+
+        int maxAlive;
+        try {
+            maxAlive = Integer.parseInt(args[4]);
+        } catch (NumberFormatException e) {
+            messages.send(sender, "invalid-arguments",
+                    MessageManager.placeholders("command", "entitySpawnPointMaxAlive"));
+            return;
+        }
+
+        if (maxAlive < 0) {
+            messages.send(sender, "invalid-arguments",
+                    MessageManager.placeholders("command", "entitySpawnPointMaxAlive"));
+            return;
+        }
+
+        if (!config.setEntitySpawnPointMaxAlive(worldName, pointName, maxAlive)) {
+            messages.send(sender, "entityspawnpoint-not-found", MessageManager.placeholders(
+                    "name", pointName,
+                    "world", worldName
+            ));
+            return;
+        }
+
+        plugin.getEntitySpawnPointManager().updateSpawnPoint(worldName, pointName);
+
+        messages.send(sender, "entityspawnpointmaxalive-set", MessageManager.placeholders(
+                "name", pointName,
+                "world", worldName,
+                "max_alive", maxAlive > 0 ? String.valueOf(maxAlive) : messages.getRaw("entityspawnpoint-no-limit")
+        ));
+    }
+
+    private void handleSetEntitySpawnPointCount(CommandSender sender, String[] args) {
+        if (args.length < 5) {
+            messages.send(sender, "invalid-arguments",
+                    MessageManager.placeholders("command", "entitySpawnPointCount"));
+            return;
+        }
+
+        String worldName = args[2];
+        String pointName = args[3];
+
+        if (!isValidWorld(worldName)) {
+            messages.send(sender, "world-not-found", MessageManager.placeholders("world", worldName));
+            return;
+        }
+
+        int count;
+        try {
+            count = Integer.parseInt(args[4]);
+        } catch (NumberFormatException e) {
+            messages.send(sender, "invalid-arguments",
+                    MessageManager.placeholders("command", "entitySpawnPointCount"));
+            return;
+        }
+
+        if (count < 1) {
+            messages.send(sender, "invalid-arguments",
+                    MessageManager.placeholders("command", "entitySpawnPointCount"));
+            return;
+        }
+
+        if (!config.setEntitySpawnPointCount(worldName, pointName, count)) {
+            messages.send(sender, "entityspawnpoint-not-found", MessageManager.placeholders(
+                    "name", pointName,
+                    "world", worldName
+            ));
+            return;
+        }
+
+        plugin.getEntitySpawnPointManager().updateSpawnPoint(worldName, pointName);
+
+        messages.send(sender, "entityspawnpointcount-set", MessageManager.placeholders(
+                "name", pointName,
+                "world", worldName,
+                "count", String.valueOf(count)
+        ));
+    }
+
     private void handleAddDisallowedEntity(CommandSender sender, String[] args) {
         if (args.length < 4) {
             messages.send(sender, "invalid-arguments", MessageManager.placeholders("command", "disallowedEntity"));
@@ -910,11 +1034,18 @@ public class GuardCoreCommand implements CommandExecutor {
             return;
         }
 
-        config.removeEntityLimit(worldName, entityName);
+        LimitScope scope = args.length >= 5 ? LimitScope.fromName(args[4]) : LimitScope.WORLD;
+        if (scope == null) {
+            messages.send(sender, "invalid-arguments", MessageManager.placeholders("command", "entityLimit"));
+            return;
+        }
+
+        config.removeEntityLimit(worldName, scope, entityName);
 
         messages.send(sender, "entitylimit-removed", MessageManager.placeholders(
                 "entity", entityName,
-                "world", worldName
+                "world", worldName,
+                "scope", scope.getName()
         ));
     }
 
@@ -1107,6 +1238,14 @@ public class GuardCoreCommand implements CommandExecutor {
                 "status", messages.getBooleanDisplay(enabled),
                 "time", time
         ));
+
+        Map<String, Long> materialTimes = config.getPolicy(Bukkit.getWorld(worldName)).getConfiguredDespawnTimes();
+        for (Map.Entry<String, Long> entry : materialTimes.entrySet()) {
+            messages.send(sender, "blockdespawn-info-material", MessageManager.placeholders(
+                    "material", entry.getKey(),
+                    "time", TimeParser.formatDuration(entry.getValue())
+            ));
+        }
     }
 
     private void handleInfoWaterFlow(CommandSender sender, String[] args) {
@@ -1167,24 +1306,36 @@ public class GuardCoreCommand implements CommandExecutor {
         // Jeśli podano entity - pokaż limit dla konkretnego entity
         if (args.length >= 4) {
             String entityName = args[3].toUpperCase();
+            boolean found = false;
+
+            for (LimitScope scope : LimitScope.values()) {
+                int limit = config.getEntityLimit(worldName, scope, entityName);
+                if (limit != -1) {
+                    found = true;
+                    messages.send(sender, "entitylimit-info", MessageManager.placeholders(
+                            "entity", entityName,
+                            "world", worldName,
+                            "limit", String.valueOf(limit),
+                            "scope", scope.getName()
+                    ));
+                }
+            }
 
-            int limit = config.getEntityLimit(worldName, entityName);
-
-            if (limit == -1) {
+            if (!found) {
                 messages.send(sender, "entitylimit-not-set", MessageManager.placeholders(
                         "entity", entityName,
                         "world", worldName
                 ));
-            } else {
-                messages.send(sender, "entitylimit-info", MessageManager.placeholders(
-                        "entity", entityName,
-                        "world", worldName,
-                        "limit", String.valueOf(limit)
-                ));
             }
         } else {
             // Pokaż wszystkie limity dla świata
-            Map<String, Integer> limits = config.getEntityLimits(worldName);
+            Map<LimitScope, Map<String, Integer>> limits = new EnumMap<>(LimitScope.class);
+            for (LimitScope scope : LimitScope.values()) {
+                Map<String, Integer> scopeLimits = config.getEntityLimits(worldName, scope);
+                if (!scopeLimits.isEmpty()) {
+                    limits.put(scope, scopeLimits);
+                }
+            }
 
             if (limits.isEmpty()) {
                 messages.send(sender, "entitylimit-list-empty", MessageManager.placeholders("world", worldName));
@@ -1193,11 +1344,14 @@ public class GuardCoreCommand implements CommandExecutor {
 
             messages.send(sender, "entitylimit-list-header", MessageManager.placeholders("world", worldName));
 
-            for (Map.Entry<String, Integer> entry : limits.entrySet()) {
-                messages.send(sender, "entitylimit-list-item", MessageManager.placeholders(
-                        "entity", entry.getKey(),
-                        "limit", String.valueOf(entry.getValue())
-                ));
+            for (Map.Entry<LimitScope, Map<String, Integer>> scopeEntry : limits.entrySet()) {
+                for (Map.Entry<String, Integer> entry : scopeEntry.getValue().entrySet()) {
+                    messages.send(sender, "entitylimit-list-item", MessageManager.placeholders(
+                            "entity", entry.getKey(),
+                            "limit", String.valueOf(entry.getValue()),
+                            "scope", scopeEntry.getKey().getName()
+                    ));
+                }
             }
 
             messages.send(sender, "entitylimit-list-footer", MessageManager.placeholders("world", worldName));
@@ -1371,6 +1525,182 @@ public class GuardCoreCommand implements CommandExecutor {
         messages.send(sender, helpKey);
     }
 
+    // ===== STORAGE COMMANDS =====
+
+    private void handleStorage(CommandSender sender, String[] args) {
+        String action = args.length > 1 ? args[1].toLowerCase() : "status";
+
+        switch (action) {
+            case "status":
+                handleStorageStatus(sender);
+                break;
+            case "save":
+                handleStorageSave(sender);
+                break;
+            default:
+                messages.send(sender, "unknown-command");
+                break;
+        }
+    }
+
+    private void handleStorageStatus(CommandSender sender) {
+        if (!PermissionUtils.hasInfoPermission(sender)) {
+            messages.send(sender, "no-permission");
+            return;
+        }
+
+        SaveCoordinator coordinator = config.getSaveCoordinator();
+        messages.send(sender, "storage-status-header");
+
+        for (SaveCoordinator.Section section : SaveCoordinator.Section.values()) {
+            SaveCoordinator.SectionState state = coordinator.getState(section);
+
+            String status;
+            if (state.isSaving()) {
+                status = messages.getRaw("storage-state-saving");
+            } else if (state.isDirty()) {
+                status = messages.getRaw("storage-state-dirty");
+            } else {
+                status = messages.getRaw("storage-state-clean");
+            }
+
+            String lastSave = state.getLastFlushTime() == 0
+                    ? messages.getRaw("storage-never")
+                    : TimeParser.formatDuration(System.currentTimeMillis() - state.getLastFlushTime());
+
+            messages.send(sender, "storage-status-section", MessageManager.placeholders(
+                    "section", messages.getRaw("storage-section-" + section.name().toLowerCase()),
+                    "status", status,
+                    "pending", String.valueOf(state.getPendingChanges()),
+                    "saves", String.valueOf(state.getFlushes()),
+                    "coalesced", String.valueOf(state.getCoalescedChanges()),
+                    "failures", String.valueOf(state.getFailures()),
+                    "last", lastSave,
+                    "snapshot", String.format("%.2f", state.getLastSnapshotNanos() / 1_000_000.0),
+                    "write", String.valueOf(state.getLastWriteMillis())
+            ));
+        }
+
+        messages.send(sender, "storage-status-placedblocks", MessageManager.placeholders(
+                "total", String.valueOf(config.getPlacedBlockCount()),
+                "loaded", String.valueOf(config.getPlacedBlockStore().getLoadedBlockCount()),
+                "journal", String.valueOf(config.getPlacedBlockJournalBytes() / 1024)
+        ));
+    }
+
+    private void handleStorageSave(CommandSender sender) {
+        if (!PermissionUtils.hasReloadPermission(sender)) {
+            messages.send(sender, "no-permission");
+            return;
+        }
+
+        SaveCoordinator coordinator = config.getSaveCoordinator();
+        for (SaveCoordinator.Section section : SaveCoordinator.Section.values()) {
+            coordinator.flush(section);
+        }
+        messages.send(sender, "storage-saved");
+    }
+
+    // ===== DESPAWN COMMANDS =====
+
+    private void handleDespawn(CommandSender sender, String[] args) {
+        String action = args.length > 1 ? args[1].toLowerCase() : "status";
+
+        switch (action) {
+            case "status":
+                handleDespawnStatus(sender);
+                break;
+            default:
+                messages.send(sender, "unknown-command");
+                break;
+        }
+    }
+
+    private void handleDespawnStatus(CommandSender sender) {
+        if (!PermissionUtils.hasInfoPermission(sender)) {
+            messages.send(sender, "no-permission");
+            return;
+        }
+
+        BlockDespawnManager despawnManager = plugin.getBlockDespawnManager();
+        messages.send(sender, "despawn-status-header");
+        messages.send(sender, "despawn-status", MessageManager.placeholders(
+                "scheduled", String.valueOf(despawnManager.getScheduledCount()),
+                "queued", String.valueOf(despawnManager.getRemovalQueueSize()),
+                "deferred", String.valueOf(despawnManager.getDeferredCount()),
+                "chunks", String.valueOf(despawnManager.getDeferredChunkCount()),
+                "removed", String.valueOf(despawnManager.getRemovedTotal()),
+                "last", String.valueOf(despawnManager.getRemovedLastTick()),
+                "limit", String.valueOf(despawnManager.getBlocksPerTick()),
+                "budget", String.valueOf(despawnManager.getMaxTickTimeMs()),
+                "physics", String.valueOf(despawnManager.isPhysicsEnabled()),
+                "cost", String.format("%.1f", despawnManager.getAverageRemovalNanos() / 1000.0)
+        ));
+
+        if (despawnManager.isCatchingUp()) {
+            int total = despawnManager.getCatchUpTotal();
+            int drained = Math.min(despawnManager.getCatchUpDrained(), total);
+            messages.send(sender, "despawn-catchup-status", MessageManager.placeholders(
+                    "drained", String.valueOf(drained),
+                    "total", String.valueOf(total),
+                    "percent", String.valueOf(drained * 100L / total),
+                    "rate", String.valueOf(despawnManager.getCatchUpBlocksPerSecond()),
+                    "state", messages.getRaw(despawnManager.isCatchUpPaused()
+                            ? "despawn-catchup-paused" : "despawn-catchup-running")
+            ));
+        }
+    }
+
+    // ===== GOVERNOR COMMANDS =====
+
+    private void handleGovernor(CommandSender sender, String[] args) {
+        String action = args.length > 1 ? args[1].toLowerCase() : "status";
+
+        switch (action) {
+            case "status":
+                handleGovernorStatus(sender);
+                break;
+            default:
+                messages.send(sender, "unknown-command");
+                break;
+        }
+    }
+
+    private void handleGovernorStatus(CommandSender sender) {
+        if (!PermissionUtils.hasInfoPermission(sender)) {
+            messages.send(sender, "no-permission");
+            return;
+        }
+
+        TaskGovernor governor = plugin.getTaskGovernor();
+        String state;
+        if (governor.isPaused()) {
+            state = messages.getRaw("governor-state-paused");
+        } else if (governor.getScale() < 1.0) {
+            state = messages.getRaw("governor-state-throttled");
+        } else {
+            state = messages.getRaw("governor-state-normal");
+        }
+
+        messages.send(sender, "governor-status-header");
+        messages.send(sender, "governor-status", MessageManager.placeholders(
+                "mspt", String.format("%.1f", governor.getMspt()),
+                "scale", String.valueOf(Math.round(governor.getScale() * 100)),
+                "state", state,
+                "target", String.format("%.1f", governor.getTargetMspt()),
+                "max", String.format("%.1f", governor.getMaxMspt())
+        ));
+
+        for (TaskGovernor.Subsystem subsystem : TaskGovernor.Subsystem.values()) {
+            messages.send(sender, "governor-subsystem", MessageManager.placeholders(
+                    "name", subsystem.getName(),
+                    "budget", String.valueOf(governor.getBudgetNanos(subsystem) / 1000),
+                    "used", String.valueOf(governor.getLastTickNanos(subsystem) / 1000),
+                    "throttled", String.valueOf(governor.getThrottledCount(subsystem))
+            ));
+        }
+    }
+
     // ===== UTILITY METHODS =====
 
     private boolean isValidWorld(String worldName) {
@@ -1,6 +1,7 @@
 package dev.nxms.guardcore.commands;
 
 import dev.nxms.guardcore.GuardCore;
+import dev.nxms.guardcore.config.LimitScope;
 import dev.nxms.guardcore.utils.PermissionUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -21,7 +22,8 @@ public class GuardCoreTabCompleter implements TabCompleter {
 
     private static final List<String> SET_COMMANDS = Arrays.asList(
             "blockDespawnTime", "blockDespawn", "waterFlow", "lavaFlow",
-            "blockRedstoneMechanism", "allowBlockDestruction", "entitySpawnTime", "entitySpawnPointTime"
+            "blockRedstoneMechanism", "allowBlockDestruction", "entitySpawnTime", "entitySpawnPointTime",
+            "entitySpawnPointMaxAlive", "entitySpawnPointCount"
     );
 
     private static final List<String> ADD_COMMANDS = Arrays.asList(
@@ -41,7 +43,8 @@ public class GuardCoreTabCompleter implements TabCompleter {
     private static final List<String> HELP_COMMANDS = Arrays.asList(
             "blockDespawnTime", "blockDespawn", "waterFlow", "lavaFlow",
             "entityLimit", "entitySpawnTime", "blockRedstoneMechanism",
-            "entitySpawnPoint", "disallowedEntity", "disallowedBlock", "blockDestruction", "reload", "bypass"
+            "entitySpawnPoint", "disallowedEntity", "disallowedBlock", "blockDestruction", "reload", "bypass",
+            "entitySpawnPointMaxAlive", "entitySpawnPointCount", "storage", "despawn", "governor"
     );
 
     private static final List<String> BYPASS_TYPES = Arrays.asList(
@@ -52,6 +55,18 @@ public class GuardCoreTabCompleter implements TabCompleter {
             "lavaFlow"
     );
 
+    private static final List<String> STORAGE_COMMANDS = Arrays.asList(
+            "status", "save"
+    );
+
+    private static final List<String> DESPAWN_COMMANDS = Arrays.asList(
+            "status"
+    );
+
+    private static final List<String> GOVERNOR_COMMANDS = Arrays.asList(
+            "status"
+    );
+
     private static final List<String> BOOLEAN_VALUES = Arrays.asList("true", "false");
 
     private static final List<String> DURATION_EXAMPLES = Arrays.asList(
@@ -150,6 +165,11 @@ public class GuardCoreTabCompleter implements TabCompleter {
         if (PermissionUtils.hasBypassPermission(sender)) {
             commands.add("bypass");
         }
+        if (PermissionUtils.hasInfoPermission(sender)) {
+            commands.add("storage");
+            commands.add("despawn");
+            commands.add("governor");
+        }
 
         return commands;
     }
@@ -186,6 +206,21 @@ public class GuardCoreTabCompleter implements TabCompleter {
                     return new ArrayList<>(BYPASS_TYPES);
                 }
                 break;
+            case "storage":
+                if (PermissionUtils.hasInfoPermission(sender)) {
+                    return new ArrayList<>(STORAGE_COMMANDS);
+                }
+                break;
+            case "despawn":
+                if (PermissionUtils.hasInfoPermission(sender)) {
+                    return new ArrayList<>(DESPAWN_COMMANDS);
+                }
+                break;
+            case "governor":
+                if (PermissionUtils.hasInfoPermission(sender)) {
+                    return new ArrayList<>(GOVERNOR_COMMANDS);
+                }
+                break;
         }
         return new ArrayList<>();
     }
@@ -214,7 +249,8 @@ public class GuardCoreTabCompleter implements TabCompleter {
 
         switch (action) {
             case "set":
-                if (setting.equals("entityspawnpointtime")) {
+                if (setting.equals("entityspawnpointtime") || setting.equals("entityspawnpointmaxalive")
+                        || setting.equals("entityspawnpointcount")) {
                     return getSpawnPointNames(thirdArg); // thirdArg = worldName
                 }
                 return getSetFourthArguments(setting);
@@ -290,6 +326,10 @@ public class GuardCoreTabCompleter implements TabCompleter {
             return new ArrayList<>(LIMIT_EXAMPLES);
         }
 
+        if (action.equals("remove") && setting.equals("entitylimit")) {
+            return getLimitScopeNames();
+        }
+
         if (action.equals("add") && setting.equals("entityspawnpoint")) {
             // Pokaż przykładowe nazwy spawn pointów oraz istniejące
             List<String> suggestions = new ArrayList<>(SPAWN_POINT_NAME_EXAMPLES);
@@ -306,6 +346,11 @@ public class GuardCoreTabCompleter implements TabCompleter {
             return new ArrayList<>(INTERVAL_EXAMPLES);
         }
 
+        if (action.equals("set") && (setting.equals("entityspawnpointmaxalive")
+                || setting.equals("entityspawnpointcount"))) {
+            return new ArrayList<>(LIMIT_EXAMPLES);
+        }
+
         return new ArrayList<>();
     }
 
@@ -321,6 +366,10 @@ public class GuardCoreTabCompleter implements TabCompleter {
             return new ArrayList<>(INTERVAL_EXAMPLES);
         }
 
+        if (action.equals("add") && setting.equals("entitylimit")) {
+            return getLimitScopeNames();
+        }
+
         return new ArrayList<>();
     }
 
@@ -330,6 +379,12 @@ public class GuardCoreTabCompleter implements TabCompleter {
                 .collect(Collectors.toList());
     }
 
+    private List<String> getLimitScopeNames() {
+        return Arrays.stream(LimitScope.values())
+                .map(LimitScope::getName)
+                .collect(Collectors.toList());
+    }
+
     private List<String> getEntityNames() {
         return Arrays.stream(EntityType.values())
                 .filter(EntityType::isSpawnable)
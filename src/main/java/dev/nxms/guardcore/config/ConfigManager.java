@@ -1,14 +1,36 @@
 package dev.nxms.guardcore.config;
 
 import dev.nxms.guardcore.GuardCore;
+import dev.nxms.guardcore.storage.MaterialPalette;
+import dev.nxms.guardcore.storage.PlacedBlockMap;
+import dev.nxms.guardcore.storage.PlacedBlockStorage;
+import dev.nxms.guardcore.storage.PlacedBlockStore;
+import dev.nxms.guardcore.storage.PlacedBlockWorld;
+import dev.nxms.guardcore.storage.PlayerPalette;
+import dev.nxms.guardcore.utils.AtomicFiles;
+import dev.nxms.guardcore.utils.BlockKey;
+import dev.nxms.guardcore.utils.TimeParser;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.EntityType;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ConfigManager {
 
@@ -16,12 +38,34 @@ public class ConfigManager {
     private FileConfiguration config;
     private File configFile;
 
-    private Map<String, PlacedBlockData> placedBlocks;
+    // Jednowątkowy wykonawca wszystkich zapisów na dysk (config.yml, postawione bloki)
+    private final ScheduledExecutorService ioExecutor;
+    // Zrzut config.yml czekający na zapis (null = brak) - kolejne zapisy nadpisują niezapisany zrzut
+    private final AtomicReference<String> pendingConfig = new AtomicReference<>();
+
+    private final PlacedBlockStore placedBlockStore;
+    private final PlacedBlockStorage placedBlockStorage;
+    private final SaveCoordinator saveCoordinator;
     private Map<String, UUID> placedFluids;
 
+    // Skompilowane ustawienia załadowanych światów (UID świata -> ustawienia).
+    // Mapa nigdy nie jest modyfikowana po publikacji - zmiana to podmiana całej referencji.
+    private volatile Map<UUID, WorldPolicy> policies = Map.of();
+
     public ConfigManager(GuardCore plugin) {
         this.plugin = plugin;
-        this.placedBlocks = new HashMap<>();
+        this.ioExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "GuardCore-IO");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.placedBlockStorage = new PlacedBlockStorage(
+                new File(plugin.getDataFolder(), "placedblocks").toPath(), plugin.getLogger(), ioExecutor);
+        this.placedBlockStore = new PlacedBlockStore(placedBlockStorage);
+        this.saveCoordinator = new SaveCoordinator(plugin);
+        saveCoordinator.register(SaveCoordinator.Section.SETTINGS, this::writeSettings, null);
+        saveCoordinator.register(SaveCoordinator.Section.PLACED_BLOCKS,
+                () -> placedBlockStorage.compact(placedBlockStore), placedBlockStorage::isJournalFull);
         this.placedFluids = new HashMap<>();
         loadConfig();
     }
@@ -35,25 +79,209 @@ public class ConfigManager {
         }
 
         config = YamlConfiguration.loadConfiguration(configFile);
+        configureSaving();
+        compilePolicies();
         loadPlacedBlocks();
 
         plugin.getLogger().info("Configuration file has been loaded.");
     }
 
     public void reloadConfig() {
+        // Niezapisane zmiany muszą trafić na dysk, zanim plik zostanie wczytany ponownie
+        awaitPendingSave();
         config = YamlConfiguration.loadConfiguration(configFile);
-        loadPlacedBlocks();
+        configureSaving();
+        compilePolicies();
+        // Postawione bloki są w pamięci i w plikach regionów - przeładowanie ich nie dotyczy
+        importLegacyPlacedBlocks();
 
         plugin.getLogger().info("Configuration has been reloaded.");
     }
 
+    /**
+     * Zapisuje config.yml od razu (w tle), bez czekania na okno zapisu.
+     */
     public void saveConfig() {
+        saveCoordinator.markDirty(SaveCoordinator.Section.SETTINGS);
+        saveCoordinator.flush(SaveCoordinator.Section.SETTINGS);
+    }
+
+    /**
+     * Oznacza ustawienia jako zmienione - zostaną zapisane przez koordynator zapisów
+     * razem z innymi zmianami z tego samego okna.
+     */
+    private void markSettingsDirty() {
+        saveCoordinator.markDirty(SaveCoordinator.Section.SETTINGS);
+    }
+
+    public SaveCoordinator getSaveCoordinator() {
+        return saveCoordinator;
+    }
+
+    /**
+     * Uruchamia koordynator zapisów.
+     */
+    public void startSaving() {
+        if (placedBlockStore.hasDirtyChunks() || placedBlockStorage.hasUnsavedChanges()) {
+            // Zmiany odtworzone z dziennika trafią do zrzutu w najbliższym oknie
+            saveCoordinator.markDirty(SaveCoordinator.Section.PLACED_BLOCKS);
+        }
+        saveCoordinator.start();
+    }
+
+    private void configureSaving() {
+        long saveDelay = parseDurationSetting("storage.saveDelay", "2s");
+        long compactInterval = parseDurationSetting("storage.placedBlocksCompactInterval", "5m");
+        saveCoordinator.configure(SaveCoordinator.Section.SETTINGS, saveDelay, saveDelay * 5);
+        saveCoordinator.configure(SaveCoordinator.Section.PLACED_BLOCKS, compactInterval, compactInterval);
+    }
+
+    /**
+     * Maksymalna liczba bloków usuwanych przez znikanie bloków w jednym ticku.
+     */
+    public int getDespawnBlocksPerTick() {
+        return Math.max(1, config.getInt("despawn.blocksPerTick", 200));
+    }
+
+    /**
+     * Maksymalny czas (ms), jaki znikanie bloków może zająć w jednym ticku.
+     */
+    public long getDespawnMaxTickTimeMs() {
+        return Math.max(1, parseDurationSetting("despawn.maxTickTime", "2ms"));
+    }
+
+    /**
+     * Maksymalny czas (ms), jaki punkty spawnu mogą zająć w jednym ticku.
+     */
+    public long getSpawnPointsMaxTickTimeMs() {
+        return Math.max(1, parseDurationSetting("spawnPoints.maxTickTime", "1ms"));
+    }
+
+    /**
+     * Maksymalna liczba entity spawnowanych przez wszystkie punkty spawnu w jednym ticku.
+     */
+    public int getSpawnPointsMaxSpawnsPerTick() {
+        return Math.max(1, config.getInt("spawnPoints.maxSpawnsPerTick", 20));
+    }
+
+    /**
+     * Promień (w blokach), w którym musi być gracz, żeby punkt spawnu był aktywny (0 = bez ograniczenia).
+     */
+    public int getSpawnPointsActivationRadius() {
+        return Math.max(0, config.getInt("spawnPoints.activationRadius", 64));
+    }
+
+    /**
+     * Średni czas ticku (ms), do którego prace w tle dostają pełny budżet czasu.
+     */
+    public double getGovernorTargetMspt() {
+        return config.getDouble("governor.targetMspt", 40.0);
+    }
+
+    /**
+     * Średni czas ticku (ms), powyżej którego prace w tle są wstrzymywane.
+     */
+    public double getGovernorMaxMspt() {
+        return config.getDouble("governor.maxMspt", 50.0);
+    }
+
+    /**
+     * Czy znikające bloki są usuwane z pełną fizyką (false = bez fizyki, z jedną aktualizacją sąsiadów na chunk).
+     */
+    public boolean isDespawnPhysicsEnabled() {
+        return config.getBoolean("despawn.physics", true);
+    }
+
+    /**
+     * Ile zaległych bloków (wygasłych np. w czasie wyłączenia serwera) może być usuwanych na sekundę.
+     */
+    public int getDespawnCatchUpBlocksPerSecond() {
+        return Math.max(20, config.getInt("despawn.catchUp.blocksPerSecond", 1000));
+    }
+
+    /**
+     * Średni czas ticku (ms), powyżej którego nadrabianie zaległych bloków jest wstrzymywane.
+     */
+    public double getDespawnCatchUpMaxTickTimeMs() {
+        return config.getDouble("despawn.catchUp.maxTickTime", 40.0);
+    }
+
+    /**
+     * Czy chunki z wygasłymi blokami mogą być ładowane w tle, gdy serwer ma zapas czasu.
+     */
+    public boolean isDespawnChunkLoadingEnabled() {
+        return config.getBoolean("despawn.loadUnloadedChunks", false);
+    }
+
+    /**
+     * Maksymalna liczba chunków ładowanych w tle na sekundę dla znikania bloków.
+     */
+    public int getDespawnChunkLoadsPerSecond() {
+        return Math.max(1, config.getInt("despawn.chunkLoadsPerSecond", 2));
+    }
+
+    private long parseDurationSetting(String path, String defaultValue) {
+        String value = config.getString(path, defaultValue);
+        long duration = TimeParser.parseDuration(value);
+        if (duration < 0) {
+            plugin.getLogger().warning("Invalid duration '" + value + "' for " + path + ", using " + defaultValue + ".");
+            duration = TimeParser.parseDuration(defaultValue);
+        }
+        return duration;
+    }
+
+    /**
+     * Robi zrzut config.yml do tekstu na wątku głównym i zleca zapis na wątku I/O.
+     */
+    private CompletableFuture<Boolean> writeSettings() {
+        pendingConfig.set(config.saveToString());
+        return CompletableFuture.supplyAsync(this::writePendingConfig, ioExecutor);
+    }
+
+    /**
+     * Kończy pracę: zapisuje zrzut postawionych bloków, czeka na zaległe zapisy i zamyka wątek I/O.
+     * Wywoływane przy wyłączaniu pluginu.
+     */
+    public void shutdown() {
+        saveCoordinator.stop();
+        if (saveCoordinator.isDirty(SaveCoordinator.Section.SETTINGS)) {
+            saveCoordinator.flush(SaveCoordinator.Section.SETTINGS);
+        }
+        placedBlockStorage.shutdown(placedBlockStore);
+        plugin.getLogger().info("Placed blocks have been saved.");
+
+        ioExecutor.shutdown();
         try {
-            savePlacedBlocks();
-            config.save(configFile);
+            if (!ioExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Pending file writes did not finish in time.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean writePendingConfig() {
+        String data = pendingConfig.getAndSet(null);
+        if (data == null) {
+            return true;
+        }
+        try {
+            AtomicFiles.write(configFile.toPath(), ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8)));
             plugin.getLogger().info("Saved configuration file.");
+            return true;
         } catch (IOException e) {
             plugin.getLogger().severe("Could not save config.yml: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void awaitPendingSave() {
+        try {
+            saveCoordinator.flush(SaveCoordinator.Section.SETTINGS).get(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            plugin.getLogger().warning("Could not wait for config.yml save: " + e.getMessage());
         }
     }
 
@@ -61,6 +289,79 @@ public class ConfigManager {
         return config.getString("language", "en");
     }
 
+    // ===== WORLD POLICIES =====
+
+    /**
+     * Zwraca skompilowane ustawienia świata. Nie odwołuje się do config.yml,
+     * więc może być wywoływane przy każdym zdarzeniu.
+     */
+    public WorldPolicy getPolicy(World world) {
+        WorldPolicy policy = policies.get(world.getUID());
+        return policy != null ? policy : WorldPolicy.DEFAULT;
+    }
+
+    /**
+     * Kompiluje ustawienia świata po jego załadowaniu.
+     */
+    public void loadPolicy(World world) {
+        WorldPolicy policy = compilePolicy(world);
+        reportInvalidEntries(world.getName(), policy);
+        putPolicy(world, policy);
+    }
+
+    /**
+     * Usuwa ustawienia wyładowanego świata.
+     */
+    public void unloadPolicy(World world) {
+        Map<UUID, WorldPolicy> compiled = new HashMap<>(policies);
+        compiled.remove(world.getUID());
+        policies = compiled;
+    }
+
+    /**
+     * Kompiluje ustawienia wszystkich załadowanych światów i podmienia je naraz.
+     */
+    private void compilePolicies() {
+        Map<UUID, WorldPolicy> compiled = new HashMap<>();
+        for (World world : Bukkit.getWorlds()) {
+            WorldPolicy policy = compilePolicy(world);
+            reportInvalidEntries(world.getName(), policy);
+            compiled.put(world.getUID(), policy);
+        }
+        policies = compiled;
+    }
+
+    private WorldPolicy compilePolicy(World world) {
+        return WorldPolicy.compile(config.getConfigurationSection("worlds." + world.getName()), world);
+    }
+
+    private void putPolicy(World world, WorldPolicy policy) {
+        Map<UUID, WorldPolicy> compiled = new HashMap<>(policies);
+        compiled.put(world.getUID(), policy);
+        policies = compiled;
+    }
+
+    /**
+     * Ostrzega raz (przy wczytaniu) o wpisach, które nigdy nie zadziałają.
+     */
+    private void reportInvalidEntries(String worldName, WorldPolicy policy) {
+        for (String entry : policy.getInvalidEntries()) {
+            plugin.getLogger().warning("Ignoring invalid entry in worlds." + worldName + "." + entry);
+        }
+    }
+
+    /**
+     * Oznacza ustawienia jako zmienione i kompiluje ponownie ustawienia świata.
+     * Niezaładowany świat zostanie skompilowany przy załadowaniu.
+     */
+    private void worldSettingsChanged(String worldName) {
+        markSettingsDirty();
+        World world = Bukkit.getWorld(worldName);
+        if (world != null) {
+            putPolicy(world, compilePolicy(world));
+        }
+    }
+
     private void ensureWorldSection(String worldName) {
         if (!config.contains("worlds." + worldName)) {
             config.createSection("worlds." + worldName);
@@ -70,7 +371,7 @@ public class ConfigManager {
             config.set("worlds." + worldName + ".lavaFlow", true);
             config.set("worlds." + worldName + ".blockRedstoneMechanism", false);
             config.set("worlds." + worldName + ".blockDestructionAllowed", true);
-            saveConfig();
+            markSettingsDirty();
         }
     }
 
@@ -84,7 +385,7 @@ public class ConfigManager {
     public void setBlockDespawnEnabled(String worldName, boolean enabled) {
         ensureWorldSection(worldName);
         config.set("worlds." + worldName + ".blockDespawn.enabled", enabled);
-        saveConfig();
+        worldSettingsChanged(worldName);
     }
 
     public String getBlockDespawnTime(String worldName) {
@@ -95,7 +396,7 @@ public class ConfigManager {
     public void setBlockDespawnTime(String worldName, String time) {
         ensureWorldSection(worldName);
         config.set("worlds." + worldName + ".blockDespawn.time", time);
-        saveConfig();
+        worldSettingsChanged(worldName);
     }
 
     // Water/Lava Flow methods
@@ -108,7 +409,7 @@ public class ConfigManager {
     public void setWaterFlowEnabled(String worldName, boolean enabled) {
         ensureWorldSection(worldName);
         config.set("worlds." + worldName + ".waterFlow", enabled);
-        saveConfig();
+        worldSettingsChanged(worldName);
     }
 
     public boolean isLavaFlowEnabled(String worldName) {
@@ -119,7 +420,7 @@ public class ConfigManager {
     public void setLavaFlowEnabled(String worldName, boolean enabled) {
         ensureWorldSection(worldName);
         config.set("worlds." + worldName + ".lavaFlow", enabled);
-        saveConfig();
+        worldSettingsChanged(worldName);
     }
 
     // Redstone Mechanism methods
@@ -132,7 +433,7 @@ public class ConfigManager {
     public void setRedstoneMechanismBlocked(String worldName, boolean blocked) {
         ensureWorldSection(worldName);
         config.set("worlds." + worldName + ".blockRedstoneMechanism", blocked);
-        saveConfig();
+        worldSettingsChanged(worldName);
     }
 
     // Block Destruction methods
@@ -145,32 +446,48 @@ public class ConfigManager {
     public void setBlockDestructionAllowed(String worldName, boolean allowed) {
         ensureWorldSection(worldName);
         config.set("worlds." + worldName + ".blockDestructionAllowed", allowed);
-        saveConfig();
+        worldSettingsChanged(worldName);
     }
 
     // Entity Limit methods
 
     public void setEntityLimit(String worldName, String entityType, int limit) {
+        setEntityLimit(worldName, LimitScope.WORLD, entityType, limit);
+    }
+
+    public void setEntityLimit(String worldName, LimitScope scope, String entityType, int limit) {
         ensureWorldSection(worldName);
-        config.set("worlds." + worldName + ".entityLimits." + entityType, limit);
-        saveConfig();
+        config.set("worlds." + worldName + "." + scope.getConfigKey() + "." + entityType, limit);
+        worldSettingsChanged(worldName);
     }
 
     public void removeEntityLimit(String worldName, String entityType) {
+        removeEntityLimit(worldName, LimitScope.WORLD, entityType);
+    }
+
+    public void removeEntityLimit(String worldName, LimitScope scope, String entityType) {
         ensureWorldSection(worldName);
-        config.set("worlds." + worldName + ".entityLimits." + entityType, null);
-        saveConfig();
+        config.set("worlds." + worldName + "." + scope.getConfigKey() + "." + entityType, null);
+        worldSettingsChanged(worldName);
     }
 
     public int getEntityLimit(String worldName, String entityType) {
+        return getEntityLimit(worldName, LimitScope.WORLD, entityType);
+    }
+
+    public int getEntityLimit(String worldName, LimitScope scope, String entityType) {
         ensureWorldSection(worldName);
-        return config.getInt("worlds." + worldName + ".entityLimits." + entityType, -1);
+        return config.getInt("worlds." + worldName + "." + scope.getConfigKey() + "." + entityType, -1);
     }
 
     public Map<String, Integer> getEntityLimits(String worldName) {
+        return getEntityLimits(worldName, LimitScope.WORLD);
+    }
+
+    public Map<String, Integer> getEntityLimits(String worldName, LimitScope scope) {
         ensureWorldSection(worldName);
         Map<String, Integer> limits = new HashMap<>();
-        ConfigurationSection section = config.getConfigurationSection("worlds." + worldName + ".entityLimits");
+        ConfigurationSection section = config.getConfigurationSection("worlds." + worldName + "." + scope.getConfigKey());
         if (section != null) {
             for (String key : section.getKeys(false)) {
                 limits.put(key, section.getInt(key));
@@ -185,13 +502,13 @@ public class ConfigManager {
         ensureWorldSection(worldName);
         config.set("worlds." + worldName + ".entitySpawnTimes." + entityType + ".from", from);
         config.set("worlds." + worldName + ".entitySpawnTimes." + entityType + ".to", to);
-        saveConfig();
+        worldSettingsChanged(worldName);
     }
 
     public void removeEntitySpawnTime(String worldName, String entityType) {
         ensureWorldSection(worldName);
         config.set("worlds." + worldName + ".entitySpawnTimes." + entityType, null);
-        saveConfig();
+        worldSettingsChanged(worldName);
     }
 
     public String[] getEntitySpawnTime(String worldName, String entityType) {
@@ -228,7 +545,9 @@ public class ConfigManager {
         config.set(path + ".y", location.getY());
         config.set(path + ".z", location.getZ());
         config.set(path + ".interval", intervalTicks);
-        saveConfig();
+        // Punkt dodany ponownie pod tą samą nazwą nie przejmuje stanu poprzedniego
+        config.set(path + ".nextSpawn", null);
+        worldSettingsChanged(worldName);
     }
 
     // Przeciążona metoda dla kompatybilności wstecznej
@@ -239,7 +558,7 @@ public class ConfigManager {
     public void removeEntitySpawnPoint(String worldName, String name) {
         ensureWorldSection(worldName);
         config.set("worlds." + worldName + ".entitySpawnPoints." + name, null);
-        saveConfig();
+        worldSettingsChanged(worldName);
     }
 
     public boolean setEntitySpawnPointInterval(String worldName, String name, long intervalTicks) {
@@ -253,35 +572,82 @@ public class ConfigManager {
         }
 
         config.set(basePath + ".interval", intervalTicks);
-        saveConfig();
+        worldSettingsChanged(worldName);
         return true;
     }
 
-    public Map<String, Object> getEntitySpawnPoint(String worldName, String name) {
+    public boolean setEntitySpawnPointCount(String worldName, String name, int count) {
         ensureWorldSection(worldName);
-        String path = "worlds." + worldName + ".entitySpawnPoints." + name;
-        if (!config.contains(path)) {
-            return null;
+
+        String basePath = "worlds." + worldName + ".entitySpawnPoints." + name;
+        if (!config.contains(basePath)) {
+            return false;
         }
-        Map<String, Object> data = new HashMap<>();
-        data.put("entity", config.getString(path + ".entity"));
-        data.put("x", config.getDouble(path + ".x"));
-        data.put("y", config.getDouble(path + ".y"));
-        data.put("z", config.getDouble(path + ".z"));
-        data.put("interval", config.getLong(path + ".interval", 6000L)); // Domyślnie 5 minut
-        return data;
+
+        config.set(basePath + ".count", count > 1 ? count : null);
+        worldSettingsChanged(worldName);
+        return true;
     }
 
-    public Map<String, Map<String, Object>> getAllEntitySpawnPoints(String worldName) {
+    public boolean setEntitySpawnPointMaxAlive(String worldName, String name, int maxAlive) {
         ensureWorldSection(worldName);
-        Map<String, Map<String, Object>> points = new HashMap<>();
-        ConfigurationSection section = config.getConfigurationSection("worlds." + worldName + ".entitySpawnPoints");
-        if (section != null) {
-            for (String name : section.getKeys(false)) {
-                points.put(name, getEntitySpawnPoint(worldName, name));
-            }
+
+        String basePath = "worlds." + worldName + ".entitySpawnPoints." + name;
+        if (!config.contains(basePath)) {
+            return false;
+        }
+
+        config.set(basePath + ".maxAlive", maxAlive > 0 ? maxAlive : null);
+        worldSettingsChanged(worldName);
+        return true;
+    }
+
+    /**
+     * Zapisuje czas (w tickach) pozostały do następnego spawnu punktu - odtwarzany przy starcie
+     * (patrz takeEntitySpawnPointNextSpawn).
+     */
+    public void setEntitySpawnPointNextSpawn(String worldName, String name, long ticks) {
+        String basePath = "worlds." + worldName + ".entitySpawnPoints." + name;
+        if (!config.contains(basePath)) {
+            return;
         }
-        return points;
+
+        config.set(basePath + ".nextSpawn", ticks);
+        markSettingsDirty();
+    }
+
+    /**
+     * Zwraca i usuwa z danych punktu zapisany czas do następnego spawnu - stan z wyłączenia
+     * serwera jest używany tylko raz, przy pierwszym zaplanowaniu punktu.
+     *
+     * @return Czas w tickach lub -1 jeśli punkt nie ma zapisanego stanu
+     */
+    public long takeEntitySpawnPointNextSpawn(String worldName, String name) {
+        String path = "worlds." + worldName + ".entitySpawnPoints." + name + ".nextSpawn";
+        if (!config.contains(path)) {
+            return -1L;
+        }
+
+        long ticks = config.getLong(path, -1L);
+        config.set(path, null);
+        markSettingsDirty();
+        return ticks;
+    }
+
+    /**
+     * @return Skompilowany punkt spawnu lub null jeśli punkt nie istnieje albo świat nie jest załadowany
+     */
+    public SpawnPoint getEntitySpawnPoint(String worldName, String name) {
+        World world = Bukkit.getWorld(worldName);
+        return world != null ? getPolicy(world).getSpawnPoint(name) : null;
+    }
+
+    /**
+     * Skompilowane punkty spawnu świata według nazwy (pusta mapa jeśli świat nie jest załadowany).
+     */
+    public Map<String, SpawnPoint> getAllEntitySpawnPoints(String worldName) {
+        World world = Bukkit.getWorld(worldName);
+        return world != null ? getPolicy(world).getSpawnPoints() : Collections.emptyMap();
     }
 
     // Disallowed Entity methods
@@ -292,7 +658,7 @@ public class ConfigManager {
         if (!entities.contains(entityType)) {
             entities.add(entityType);
             config.set("worlds." + worldName + ".disallowedEntities", entities);
-            saveConfig();
+            worldSettingsChanged(worldName);
         }
     }
 
@@ -301,7 +667,7 @@ public class ConfigManager {
         List<String> entities = getDisallowedEntities(worldName);
         entities.remove(entityType);
         config.set("worlds." + worldName + ".disallowedEntities", entities);
-        saveConfig();
+        worldSettingsChanged(worldName);
     }
 
     public List<String> getDisallowedEntities(String worldName) {
@@ -310,6 +676,11 @@ public class ConfigManager {
     }
 
     public boolean isEntityDisallowed(String worldName, String entityType) {
+        World world = Bukkit.getWorld(worldName);
+        EntityType type = WorldPolicy.parseEntityType(entityType);
+        if (world != null && type != null) {
+            return getPolicy(world).isEntityDisallowed(type);
+        }
         return getDisallowedEntities(worldName).contains(entityType);
     }
 
@@ -321,7 +692,7 @@ public class ConfigManager {
         if (!blocks.contains(blockType)) {
             blocks.add(blockType);
             config.set("worlds." + worldName + ".disallowedBlocks", blocks);
-            saveConfig();
+            worldSettingsChanged(worldName);
         }
     }
 
@@ -330,7 +701,7 @@ public class ConfigManager {
         List<String> blocks = getDisallowedBlocks(worldName);
         blocks.remove(blockType);
         config.set("worlds." + worldName + ".disallowedBlocks", blocks);
-        saveConfig();
+        worldSettingsChanged(worldName);
     }
 
     public List<String> getDisallowedBlocks(String worldName) {
@@ -339,6 +710,11 @@ public class ConfigManager {
     }
 
     public boolean isBlockDisallowed(String worldName, String blockType) {
+        World world = Bukkit.getWorld(worldName);
+        Material material = Material.matchMaterial(blockType);
+        if (world != null && material != null) {
+            return getPolicy(world).isBlockDisallowed(material);
+        }
         return getDisallowedBlocks(worldName).contains(blockType);
     }
 
@@ -401,8 +777,18 @@ public class ConfigManager {
      * Dodaje blok do rejestru (pełna wersja).
      */
     public void addPlacedBlock(Location location, UUID playerUUID, boolean bypassDespawn, boolean trackForDespawn) {
-        String key = locationToKey(location);
-        placedBlocks.put(key, new PlacedBlockData(System.currentTimeMillis(), playerUUID, bypassDespawn, trackForDespawn));
+        String worldName = location.getWorld().getName();
+        long position = BlockKey.pack(location);
+        long placedTime = System.currentTimeMillis();
+        byte flags = toFlags(bypassDespawn, trackForDespawn);
+        int placer = placedBlockStore.getPalette().indexOf(playerUUID);
+        // Materiał jest zapisywany dla czasu znikania zależnego od materiału (blockDespawn.materials)
+        String materialName = location.getBlock().getType().name();
+        int material = placedBlockStore.getMaterialPalette().indexOf(materialName);
+
+        placedBlockStore.put(worldName, position, placedTime, flags, placer, material);
+        placedBlockStorage.logPut(worldName, position, placedTime, flags, placer, playerUUID, material, materialName);
+        saveCoordinator.markDirty(SaveCoordinator.Section.PLACED_BLOCKS);
     }
 
     /**
@@ -427,22 +813,36 @@ public class ConfigManager {
     }
 
     public void removePlacedBlock(Location location) {
-        String key = locationToKey(location);
-        placedBlocks.remove(key);
+        removePlacedBlock(location.getWorld().getName(), BlockKey.pack(location));
+    }
+
+    /**
+     * Usuwa blok z rejestru po nazwie świata i spakowanej pozycji.
+     */
+    public void removePlacedBlock(String worldName, long position) {
+        if (placedBlockStore.remove(worldName, position)) {
+            placedBlockStorage.logRemove(worldName, position);
+            saveCoordinator.markDirty(SaveCoordinator.Section.PLACED_BLOCKS);
+        }
     }
 
     public void removePlacedBlockByKey(String key) {
-        placedBlocks.remove(key);
+        String[] parts = key.split(":");
+        if (parts.length != 4) {
+            return;
+        }
+        try {
+            removePlacedBlock(parts[0], BlockKey.pack(
+                    Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(parts[3])));
+        } catch (NumberFormatException ignored) {}
     }
 
     public boolean isBlockPlacedByPlayer(Location location) {
-        String key = locationToKey(location);
-        return placedBlocks.containsKey(key);
+        return placedBlockStore.contains(location.getWorld().getName(), BlockKey.pack(location));
     }
 
     public long getBlockPlacedTime(Location location) {
-        String key = locationToKey(location);
-        PlacedBlockData data = placedBlocks.get(key);
+        PlacedBlockData data = getPlacedBlockData(location.getWorld().getName(), BlockKey.pack(location));
         return data != null ? data.getPlacedTime() : -1L;
     }
 
@@ -450,8 +850,7 @@ public class ConfigManager {
      * Pobiera UUID gracza który postawił blok.
      */
     public UUID getBlockPlacedByPlayerUUID(Location location) {
-        String key = locationToKey(location);
-        PlacedBlockData data = placedBlocks.get(key);
+        PlacedBlockData data = getPlacedBlockData(location.getWorld().getName(), BlockKey.pack(location));
         return data != null ? data.getPlayerUUID() : null;
     }
 
@@ -459,7 +858,7 @@ public class ConfigManager {
      * Pobiera UUID gracza który postawił blok (po kluczu).
      */
     public UUID getBlockPlacedByPlayerUUID(String key) {
-        PlacedBlockData data = placedBlocks.get(key);
+        PlacedBlockData data = getPlacedBlockData(key);
         return data != null ? data.getPlayerUUID() : null;
     }
 
@@ -467,7 +866,7 @@ public class ConfigManager {
      * Sprawdza czy blok ma bypass na despawn.
      */
     public boolean hasBlockBypassDespawn(String key) {
-        PlacedBlockData data = placedBlocks.get(key);
+        PlacedBlockData data = getPlacedBlockData(key);
         return data != null && data.hasBypassDespawn();
     }
 
@@ -475,15 +874,74 @@ public class ConfigManager {
      * Sprawdza czy blok powinien zniknąć.
      */
     public boolean shouldBlockDespawn(String key) {
-        PlacedBlockData data = placedBlocks.get(key);
+        PlacedBlockData data = getPlacedBlockData(key);
         return data != null && data.shouldDespawn();
     }
 
     /**
-     * Pobiera dane o postawionym bloku.
+     * Pobiera dane o postawionym bloku (klucz "world:x:y:z").
      */
     public PlacedBlockData getPlacedBlockData(String key) {
-        return placedBlocks.get(key);
+        String[] parts = key.split(":");
+        if (parts.length != 4) {
+            return null;
+        }
+        try {
+            return getPlacedBlockData(parts[0], BlockKey.pack(
+                    Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(parts[3])));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Pobiera dane o postawionym bloku po nazwie świata i spakowanej pozycji.
+     */
+    public PlacedBlockData getPlacedBlockData(String worldName, long position) {
+        PlacedBlockMap shard = placedBlockStore.getShard(worldName, position);
+        if (shard == null) {
+            return null;
+        }
+        int slot = shard.indexOf(position);
+        if (slot < 0) {
+            return null;
+        }
+        return toData(shard.placedTimeAt(slot), shard.flagsAt(slot), shard.placerAt(slot));
+    }
+
+    /**
+     * Zwraca rejestr postawionych bloków (shardy per chunk).
+     */
+    public PlacedBlockStore getPlacedBlockStore() {
+        return placedBlockStore;
+    }
+
+    /**
+     * Zwraca zapis postawionych bloków na dysku (pliki regionów i dziennik).
+     */
+    public PlacedBlockStorage getPlacedBlockStorage() {
+        return placedBlockStorage;
+    }
+
+    /**
+     * Zwraca postawione bloki świata (lub null jeśli świat nie ma bloków).
+     */
+    public PlacedBlockWorld getPlacedBlockWorld(String worldName) {
+        return placedBlockStore.getWorld(worldName);
+    }
+
+    /**
+     * Zwraca łączną liczbę zarejestrowanych bloków.
+     */
+    public int getPlacedBlockCount() {
+        return placedBlockStore.size();
+    }
+
+    /**
+     * Zwraca rozmiar bieżącego segmentu dziennika postawionych bloków (w bajtach).
+     */
+    public long getPlacedBlockJournalBytes() {
+        return placedBlockStorage.getJournalBytes();
     }
 
     /**
@@ -491,17 +949,48 @@ public class ConfigManager {
      */
     public Map<String, Long> getPlacedBlocks() {
         Map<String, Long> result = new HashMap<>();
-        for (Map.Entry<String, PlacedBlockData> entry : placedBlocks.entrySet()) {
-            result.put(entry.getKey(), entry.getValue().getPlacedTime());
+        for (PlacedBlockWorld world : placedBlockStore.getWorlds()) {
+            forEachPlacedBlock(world, (position, placedTime, flags, placer, material) ->
+                    result.put(toKey(world.getName(), position), placedTime));
         }
         return result;
     }
 
     /**
-     * Zwraca pełną mapę danych o postawionych blokach.
+     * Zwraca pełną mapę danych o postawionych blokach (kompatybilność - kosztowne przy dużej bazie).
      */
     public Map<String, PlacedBlockData> getPlacedBlocksData() {
-        return new HashMap<>(placedBlocks);
+        Map<String, PlacedBlockData> result = new HashMap<>();
+        for (PlacedBlockWorld world : placedBlockStore.getWorlds()) {
+            forEachPlacedBlock(world, (position, placedTime, flags, placer, material) ->
+                    result.put(toKey(world.getName(), position), toData(placedTime, flags, placer)));
+        }
+        return result;
+    }
+
+    /**
+     * Iteruje po wszystkich blokach świata - bloki wyładowanych chunków są czytane z plików regionów.
+     */
+    private void forEachPlacedBlock(PlacedBlockWorld world, PlacedBlockMap.Visitor visitor) {
+        world.forEachLoaded(visitor);
+        placedBlockStorage.forEachStored(world.getName(), null, world::isChunkLoaded, visitor);
+    }
+
+    private PlacedBlockData toData(long placedTime, byte flags, int placer) {
+        return new PlacedBlockData(placedTime, placedBlockStore.getPalette().get(placer),
+                (flags & PlacedBlockMap.FLAG_BYPASS_DESPAWN) != 0,
+                (flags & PlacedBlockMap.FLAG_TRACK_DESPAWN) != 0);
+    }
+
+    private static byte toFlags(boolean bypassDespawn, boolean trackForDespawn) {
+        byte flags = 0;
+        if (bypassDespawn) flags |= PlacedBlockMap.FLAG_BYPASS_DESPAWN;
+        if (trackForDespawn) flags |= PlacedBlockMap.FLAG_TRACK_DESPAWN;
+        return flags;
+    }
+
+    private static String toKey(String worldName, long position) {
+        return worldName + ":" + BlockKey.unpackX(position) + ":" + BlockKey.unpackY(position) + ":" + BlockKey.unpackZ(position);
     }
 
     private String locationToKey(Location location) {
@@ -512,47 +1001,90 @@ public class ConfigManager {
     }
 
     private void loadPlacedBlocks() {
-        placedBlocks.clear();
+        placedBlockStorage.load(placedBlockStore);
+        importLegacyPlacedBlocks();
+
+        // W pamięci są tylko shardy załadowanych chunków, reszta zostaje w plikach regionów
+        placedBlockStore.syncLoadedChunks();
+        plugin.getLogger().info("Loaded " + getPlacedBlockCount() + " placed blocks ("
+                + placedBlockStore.getLoadedBlockCount() + " in loaded chunks).");
+    }
+
+    /**
+     * Jednorazowy import starej sekcji placedBlocks z config.yml do plików regionów.
+     * Sekcja jest usuwana z config.yml dopiero po udanym zapisie regionów.
+     *
+     * @return true jeśli zaimportowano jakieś bloki
+     */
+    private boolean importLegacyPlacedBlocks() {
         ConfigurationSection section = config.getConfigurationSection("placedBlocks");
-        if (section != null) {
-            for (String key : section.getKeys(false)) {
-                String actualKey = key.replace(".", ":");
-
-                if (section.isConfigurationSection(key)) {
-                    // Nowy format
-                    long time = section.getLong(key + ".time");
-                    String uuidStr = section.getString(key + ".player");
-                    boolean bypassDespawn = section.getBoolean(key + ".bypassDespawn", false);
-                    boolean trackForDespawn = section.getBoolean(key + ".trackForDespawn", false);
-                    UUID uuid = null;
-                    if (uuidStr != null && !uuidStr.isEmpty()) {
+        if (section == null) {
+            return false;
+        }
+
+        int before = getPlacedBlockCount();
+        // Bloki wyładowanych chunków są zbierane per chunk i zapisywane raz, bez trzymania ich w pamięci
+        placedBlockStore.beginBulk();
+        // Klucze "world.x.y.z" są zagnieżdżone przez kropki: świat -> x -> y -> z
+        for (String worldName : section.getKeys(false)) {
+            ConfigurationSection worldSection = section.getConfigurationSection(worldName);
+            if (worldSection == null) continue;
+
+            for (String x : worldSection.getKeys(false)) {
+                ConfigurationSection xSection = worldSection.getConfigurationSection(x);
+                if (xSection == null) continue;
+
+                for (String y : xSection.getKeys(false)) {
+                    ConfigurationSection ySection = xSection.getConfigurationSection(y);
+                    if (ySection == null) continue;
+
+                    for (String z : ySection.getKeys(false)) {
+                        long position;
                         try {
-                            uuid = UUID.fromString(uuidStr);
-                        } catch (IllegalArgumentException ignored) {}
+                            position = BlockKey.pack(Integer.parseInt(x), Integer.parseInt(y), Integer.parseInt(z));
+                        } catch (NumberFormatException e) {
+                            continue;
+                        }
+                        loadPlacedBlock(worldName, ySection, z, position);
                     }
-                    placedBlocks.put(actualKey, new PlacedBlockData(time, uuid, bypassDespawn, trackForDespawn));
-                } else {
-                    // Stary format (tylko czas) - nie śledź do despawn
-                    long time = section.getLong(key);
-                    placedBlocks.put(actualKey, new PlacedBlockData(time, null, false, false));
                 }
             }
         }
-        plugin.getLogger().info("Loaded " + placedBlocks.size() + " placed blocks from config.");
-    }
 
-    private void savePlacedBlocks() {
+        placedBlockStore.endBulk();
+
+        if (!placedBlockStorage.compact(placedBlockStore).join()) {
+            plugin.getLogger().severe("Could not write imported placed blocks, keeping legacy placedBlocks section in config.yml.");
+            return true;
+        }
+
         config.set("placedBlocks", null);
-        for (Map.Entry<String, PlacedBlockData> entry : placedBlocks.entrySet()) {
-            String safeKey = entry.getKey().replace(":", ".");
-            PlacedBlockData data = entry.getValue();
-
-            config.set("placedBlocks." + safeKey + ".time", data.getPlacedTime());
-            config.set("placedBlocks." + safeKey + ".bypassDespawn", data.hasBypassDespawn());
-            config.set("placedBlocks." + safeKey + ".trackForDespawn", data.isTrackForDespawn());
-            if (data.getPlayerUUID() != null) {
-                config.set("placedBlocks." + safeKey + ".player", data.getPlayerUUID().toString());
+        markSettingsDirty();
+        plugin.getLogger().info("Imported " + (getPlacedBlockCount() - before)
+                + " placed blocks from legacy config.yml section.");
+        return true;
+    }
+
+    private void loadPlacedBlock(String worldName, ConfigurationSection section, String key, long position) {
+        if (section.isConfigurationSection(key)) {
+            // Nowy format
+            long time = section.getLong(key + ".time");
+            String uuidStr = section.getString(key + ".player");
+            boolean bypassDespawn = section.getBoolean(key + ".bypassDespawn", false);
+            boolean trackForDespawn = section.getBoolean(key + ".trackForDespawn", false);
+            UUID uuid = null;
+            if (uuidStr != null && !uuidStr.isEmpty()) {
+                try {
+                    uuid = UUID.fromString(uuidStr);
+                } catch (IllegalArgumentException ignored) {}
             }
+            placedBlockStore.put(worldName, position, time, toFlags(bypassDespawn, trackForDespawn),
+                    placedBlockStore.getPalette().indexOf(uuid), MaterialPalette.NO_MATERIAL);
+        } else {
+            // Stary format (tylko czas) - nie śledź do despawn
+            long time = section.getLong(key);
+            placedBlockStore.put(worldName, position, time, (byte) 0, PlayerPalette.NO_PLAYER,
+                    MaterialPalette.NO_MATERIAL);
         }
     }
 
@@ -0,0 +1,43 @@
+package dev.nxms.guardcore.config;
+
+/**
+ * Zakres limitu entity: cały świat, pojedynczy chunk albo region NxN chunków.
+ */
+public enum LimitScope {
+
+    WORLD("entityLimits"),
+    CHUNK("chunkEntityLimits"),
+    REGION("regionEntityLimits");
+
+    private final String configKey;
+
+    LimitScope(String configKey) {
+        this.configKey = configKey;
+    }
+
+    /**
+     * Klucz sekcji limitów w ustawieniach świata.
+     */
+    public String getConfigKey() {
+        return configKey;
+    }
+
+    /**
+     * Nazwa zakresu używana w komendach i wiadomościach.
+     */
+    public String getName() {
+        return name().toLowerCase();
+    }
+
+    /**
+     * Zwraca zakres o podanej nazwie lub null.
+     */
+    public static LimitScope fromName(String name) {
+        for (LimitScope scope : values()) {
+            if (scope.getName().equalsIgnoreCase(name)) {
+                return scope;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,223 @@
+package dev.nxms.guardcore.config;
+
+import dev.nxms.guardcore.GuardCore;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Koordynator zapisów danych pluginu.
+ * Zmiany tylko oznaczają sekcję jako zmienioną, a zapis odbywa się raz na okno czasowe:
+ * gdy przez saveDelay nie było kolejnej zmiany lub gdy od pierwszej zmiany minęło maxDelay.
+ * Sekcje bez zmian nigdy nie są serializowane ponownie.
+ */
+public class SaveCoordinator {
+
+    public enum Section {
+        SETTINGS,
+        PLACED_BLOCKS
+    }
+
+    private static final long CHECK_INTERVAL_TICKS = 5L;
+
+    private final GuardCore plugin;
+    private final Map<Section, SectionState> sections = new EnumMap<>(Section.class);
+    private BukkitTask task;
+
+    public SaveCoordinator(GuardCore plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Rejestruje sekcję.
+     *
+     * @param flusher robi zrzut na wątku głównym i zwraca wynik zapisu w tle
+     * @param urgent  warunek wymuszający zapis przed upływem okna (może być null)
+     */
+    public void register(Section section, Supplier<CompletableFuture<Boolean>> flusher, BooleanSupplier urgent) {
+        sections.put(section, new SectionState(flusher, urgent));
+    }
+
+    /**
+     * Ustawia okno zapisu sekcji (w milisekundach).
+     */
+    public void configure(Section section, long saveDelayMs, long maxDelayMs) {
+        SectionState state = sections.get(section);
+        state.saveDelayMs = Math.max(0, saveDelayMs);
+        state.maxDelayMs = Math.max(state.saveDelayMs, maxDelayMs);
+    }
+
+    public void start() {
+        stop();
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, CHECK_INTERVAL_TICKS, CHECK_INTERVAL_TICKS);
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Oznacza sekcję jako zmienioną.
+     */
+    public void markDirty(Section section) {
+        SectionState state = sections.get(section);
+        long now = System.currentTimeMillis();
+        if (state.dirtySince == 0) {
+            state.dirtySince = now;
+        }
+        state.lastChange = now;
+        state.pendingChanges++;
+    }
+
+    public boolean isDirty(Section section) {
+        return sections.get(section).dirtySince != 0;
+    }
+
+    /**
+     * Zapisuje sekcję od razu (jeśli jest zmieniona) i zwraca wynik zapisu.
+     */
+    public CompletableFuture<Boolean> flush(Section section) {
+        SectionState state = sections.get(section);
+        if (state.dirtySince == 0) {
+            return state.inFlight != null ? state.inFlight : CompletableFuture.completedFuture(true);
+        }
+
+        long started = System.nanoTime();
+        CompletableFuture<Boolean> result = state.flusher.get();
+        state.lastSnapshotNanos = System.nanoTime() - started;
+
+        state.coalescedChanges += Math.max(0, state.pendingChanges - 1);
+        state.pendingChanges = 0;
+        state.dirtySince = 0;
+        state.flushes++;
+        state.lastFlushTime = System.currentTimeMillis();
+        state.inFlight = result;
+        long flushTime = state.lastFlushTime;
+        result.whenComplete((success, error) -> state.lastWriteMillis = System.currentTimeMillis() - flushTime);
+        return result;
+    }
+
+    public SectionState getState(Section section) {
+        return sections.get(section);
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Section, SectionState> entry : sections.entrySet()) {
+            SectionState state = entry.getValue();
+
+            if (state.inFlight != null) {
+                if (!state.inFlight.isDone()) {
+                    // Nie zaczynaj kolejnego zapisu sekcji, zanim poprzedni się nie skończy
+                    continue;
+                }
+                boolean success = !state.inFlight.isCompletedExceptionally()
+                        && Boolean.TRUE.equals(state.inFlight.getNow(false));
+                state.inFlight = null;
+                if (!success) {
+                    // Nieudany zapis - spróbuj ponownie w następnym oknie
+                    state.failures++;
+                    if (state.dirtySince == 0) {
+                        state.dirtySince = now;
+                        state.lastChange = now;
+                    }
+                }
+            }
+
+            if (state.dirtySince == 0) {
+                continue;
+            }
+            boolean urgent = state.urgent != null && state.urgent.getAsBoolean();
+            if (urgent || now - state.lastChange >= state.saveDelayMs || now - state.dirtySince >= state.maxDelayMs) {
+                flush(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Stan i statystyki zapisu sekcji.
+     */
+    public static class SectionState {
+        private final Supplier<CompletableFuture<Boolean>> flusher;
+        private final BooleanSupplier urgent;
+
+        private long saveDelayMs;
+        private long maxDelayMs;
+
+        // Stan wątku głównego
+        private long dirtySince;
+        private long lastChange;
+        private long pendingChanges;
+        private CompletableFuture<Boolean> inFlight;
+
+        // Statystyki
+        private long flushes;
+        private long coalescedChanges;
+        private long failures;
+        private long lastFlushTime;
+        private long lastSnapshotNanos;
+        private volatile long lastWriteMillis;
+
+        SectionState(Supplier<CompletableFuture<Boolean>> flusher, BooleanSupplier urgent) {
+            this.flusher = flusher;
+            this.urgent = urgent;
+        }
+
+        public boolean isDirty() {
+            return dirtySince != 0;
+        }
+
+        public boolean isSaving() {
+            return inFlight != null && !inFlight.isDone();
+        }
+
+        public long getPendingChanges() {
+            return pendingChanges;
+        }
+
+        public long getFlushes() {
+            return flushes;
+        }
+
+        /**
+         * Liczba zmian, które nie wymagały osobnego zapisu (zapisały się razem z innymi).
+         */
+        public long getCoalescedChanges() {
+            return coalescedChanges;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getLastFlushTime() {
+            return lastFlushTime;
+        }
+
+        /**
+         * Czas zrzutu na wątku głównym przy ostatnim zapisie (ns).
+         */
+        public long getLastSnapshotNanos() {
+            return lastSnapshotNanos;
+        }
+
+        /**
+         * Czas od zlecenia do zakończenia ostatniego zapisu w tle (ms).
+         */
+        public long getLastWriteMillis() {
+            return lastWriteMillis;
+        }
+
+        public long getSaveDelayMs() {
+            return saveDelayMs;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package dev.nxms.guardcore.config;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.EntityType;
+
+/**
+ * Niezmienny, skompilowany punkt spawnu z sekcji "worlds.&lt;świat&gt;.entitySpawnPoints.&lt;nazwa&gt;".
+ * Typ entity jest rozwiązany, a współrzędne przechowywane bez opakowań, więc spawn i listowanie
+ * punktów nie czytają YAML ani nie parsują nazw.
+ */
+public final class SpawnPoint {
+
+    // Domyślny interwał w tickach (5 minut)
+    private static final long DEFAULT_INTERVAL_TICKS = 6000L;
+
+    private final String name;
+    private final World world;
+    private final EntityType entityType;
+    private final double x;
+    private final double y;
+    private final double z;
+    private final long intervalTicks;
+    // Liczba entity spawnowanych w jednej fali
+    private final int count;
+    // Maksymalna liczba żywych encji punktu (0 = bez limitu)
+    private final int maxAlive;
+
+    private SpawnPoint(String name, World world, EntityType entityType, double x, double y, double z,
+                       long intervalTicks, int count, int maxAlive) {
+        this.name = name;
+        this.world = world;
+        this.entityType = entityType;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.intervalTicks = intervalTicks;
+        this.count = count;
+        this.maxAlive = maxAlive;
+    }
+
+    /**
+     * Kompiluje punkt z jego sekcji config.yml.
+     *
+     * @return Punkt lub null jeśli typ entity lub interwał są nieprawidłowe
+     */
+    static SpawnPoint compile(World world, String name, ConfigurationSection section) {
+        EntityType entityType = WorldPolicy.parseEntityType(section.getString("entity", ""));
+        long intervalTicks = section.getLong("interval", DEFAULT_INTERVAL_TICKS);
+        if (entityType == null || intervalTicks <= 0) {
+            return null;
+        }
+
+        return new SpawnPoint(name, world, entityType,
+                section.getDouble("x"), section.getDouble("y"), section.getDouble("z"),
+                intervalTicks,
+                Math.max(1, section.getInt("count", 1)),
+                Math.max(0, section.getInt("maxAlive", 0)));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public String getWorldName() {
+        return world.getName();
+    }
+
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public long getIntervalTicks() {
+        return intervalTicks;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getMaxAlive() {
+        return maxAlive;
+    }
+
+    public Location toLocation() {
+        return new Location(world, x, y, z);
+    }
+
+    /**
+     * Sprawdza czy inny punkt ma te same ustawienia - wtedy harmonogram punktu nie musi być zmieniany.
+     */
+    public boolean hasSameSettings(SpawnPoint other) {
+        return world.equals(other.world)
+                && entityType == other.entityType
+                && Double.compare(x, other.x) == 0
+                && Double.compare(y, other.y) == 0
+                && Double.compare(z, other.z) == 0
+                && intervalTicks == other.intervalTicks
+                && count == other.count
+                && maxAlive == other.maxAlive;
+    }
+}
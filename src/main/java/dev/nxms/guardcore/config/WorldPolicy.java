@@ -0,0 +1,386 @@
+package dev.nxms.guardcore.config;
+
+import dev.nxms.guardcore.utils.TimeParser;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Tag;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.EntityType;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Niezmienny, skompilowany zestaw ustawień świata.
+ * Budowany z sekcji "worlds.&lt;świat&gt;" przy wczytaniu, przeładowaniu i każdej zmianie ustawień,
+ * dzięki czemu listenery nie przechodzą po drzewie YAML przy każdym zdarzeniu.
+ */
+public final class WorldPolicy {
+
+    /**
+     * Domyślne ustawienia świata bez własnej sekcji w config.yml.
+     */
+    public static final WorldPolicy DEFAULT = new WorldPolicy(null, null);
+
+    private static final EntityType[] ENTITY_TYPES = EntityType.values();
+    private static final LimitScope[] LIMIT_SCOPES = LimitScope.values();
+    private static final int DEFAULT_REGION_SIZE = 4;
+
+    private final boolean waterFlow;
+    private final boolean lavaFlow;
+    private final boolean redstoneBlocked;
+    private final boolean destructionAllowed;
+    private final boolean despawnEnabled;
+    private final long despawnTimeMs;
+    // Czas znikania dla materiałów z blockDespawn.materials (materiały bez wpisu - despawnTimeMs)
+    private final Map<Material, Long> materialDespawnTimes;
+    // Poprawne wpisy blockDespawn.materials tak jak w config.yml (materiały i tagi "#...")
+    private final Map<String, Long> configuredDespawnTimes;
+    private final Set<Material> disallowedBlocks;
+    private final Set<EntityType> disallowedEntities;
+
+    // Indeksowane przez LimitScope.ordinal(), potem EntityType.ordinal()
+    private final int[][] entityLimits;
+    // Bok regionu limitów w chunkach
+    private final int regionSize;
+    private final boolean spatialLimits;
+
+    // Indeksowane przez EntityType.ordinal()
+    private final LocalTime[] spawnFrom;
+    private final LocalTime[] spawnTo;
+
+    // Nazwa punktu -> skompilowany punkt spawnu
+    private final Map<String, SpawnPoint> spawnPoints;
+
+    // Wpisy, których nie udało się rozpoznać (np. "disallowedBlocks: STONEE")
+    private final List<String> invalidEntries = new ArrayList<>();
+
+    private WorldPolicy(ConfigurationSection section, World world) {
+        this.waterFlow = section == null || section.getBoolean("waterFlow", true);
+        this.lavaFlow = section == null || section.getBoolean("lavaFlow", true);
+        this.redstoneBlocked = section != null && section.getBoolean("blockRedstoneMechanism", false);
+        this.destructionAllowed = section == null || section.getBoolean("blockDestructionAllowed", true);
+        this.despawnEnabled = section != null && section.getBoolean("blockDespawn.enabled", false);
+        this.despawnTimeMs = TimeParser.parseDuration(
+                section != null ? section.getString("blockDespawn.time", "1d0h0m0s") : "1d0h0m0s");
+
+        this.materialDespawnTimes = new EnumMap<>(Material.class);
+        this.configuredDespawnTimes = new LinkedHashMap<>();
+        this.disallowedBlocks = EnumSet.noneOf(Material.class);
+        this.disallowedEntities = EnumSet.noneOf(EntityType.class);
+        this.entityLimits = new int[LIMIT_SCOPES.length][ENTITY_TYPES.length];
+        this.spawnFrom = new LocalTime[ENTITY_TYPES.length];
+        this.spawnTo = new LocalTime[ENTITY_TYPES.length];
+        for (int[] limits : entityLimits) {
+            Arrays.fill(limits, -1);
+        }
+        this.regionSize = section != null
+                ? Math.max(1, section.getInt("entityLimitRegionSize", DEFAULT_REGION_SIZE)) : DEFAULT_REGION_SIZE;
+
+        if (section == null) {
+            this.spatialLimits = false;
+            this.spawnPoints = Collections.emptyMap();
+            return;
+        }
+
+        compileMaterialDespawnTimes(section.getConfigurationSection("blockDespawn.materials"));
+
+        for (String name : section.getStringList("disallowedBlocks")) {
+            Material material = Material.matchMaterial(name);
+            if (material != null && material.isBlock()) {
+                disallowedBlocks.add(material);
+            } else {
+                invalidEntries.add("disallowedBlocks: " + name);
+            }
+        }
+        for (String name : section.getStringList("disallowedEntities")) {
+            EntityType type = parseEntityType(name);
+            if (type != null) {
+                disallowedEntities.add(type);
+            } else {
+                invalidEntries.add("disallowedEntities: " + name);
+            }
+        }
+
+        boolean spatial = false;
+        for (LimitScope scope : LIMIT_SCOPES) {
+            ConfigurationSection limits = section.getConfigurationSection(scope.getConfigKey());
+            if (limits == null) {
+                continue;
+            }
+            for (String name : limits.getKeys(false)) {
+                EntityType type = parseEntityType(name);
+                if (type != null) {
+                    entityLimits[scope.ordinal()][type.ordinal()] = limits.getInt(name, -1);
+                    spatial |= scope != LimitScope.WORLD;
+                } else {
+                    invalidEntries.add(scope.getConfigKey() + ": " + name);
+                }
+            }
+        }
+        this.spatialLimits = spatial;
+
+        ConfigurationSection times = section.getConfigurationSection("entitySpawnTimes");
+        if (times != null) {
+            for (String name : times.getKeys(false)) {
+                EntityType type = parseEntityType(name);
+                LocalTime from = TimeParser.parseTimeOfDay(times.getString(name + ".from"));
+                LocalTime to = TimeParser.parseTimeOfDay(times.getString(name + ".to"));
+                // Nieprawidłowy zakres nie ogranicza spawnu (tak jak TimeParser.isCurrentTimeInRange)
+                if (type != null && from != null && to != null) {
+                    spawnFrom[type.ordinal()] = from;
+                    spawnTo[type.ordinal()] = to;
+                } else {
+                    invalidEntries.add("entitySpawnTimes: " + name);
+                }
+            }
+        }
+
+        this.spawnPoints = compileSpawnPoints(section.getConfigurationSection("entitySpawnPoints"), world);
+    }
+
+    private Map<String, SpawnPoint> compileSpawnPoints(ConfigurationSection section, World world) {
+        if (section == null || world == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, SpawnPoint> compiled = new LinkedHashMap<>();
+        for (String name : section.getKeys(false)) {
+            ConfigurationSection pointSection = section.getConfigurationSection(name);
+            SpawnPoint point = pointSection != null ? SpawnPoint.compile(world, name, pointSection) : null;
+            if (point != null) {
+                compiled.put(name, point);
+            } else {
+                invalidEntries.add("entitySpawnPoints: " + name);
+            }
+        }
+        return Collections.unmodifiableMap(compiled);
+    }
+
+    /**
+     * Wczytuje czasy znikania per materiał. Klucz to nazwa materiału albo tag bloków z "#"
+     * (np. "#logs" lub "#minecraft:logs"). Wpis materiału ma pierwszeństwo przed tagiem.
+     */
+    private void compileMaterialDespawnTimes(ConfigurationSection materials) {
+        if (materials == null) {
+            return;
+        }
+
+        Map<Material, Long> fromTags = new EnumMap<>(Material.class);
+        for (String name : materials.getKeys(false)) {
+            long time = TimeParser.parseDuration(materials.getString(name, ""));
+            if (time <= 0) {
+                invalidEntries.add("blockDespawn.materials: " + name);
+                continue;
+            }
+
+            if (name.startsWith("#")) {
+                Tag<Material> tag = parseBlockTag(name.substring(1));
+                if (tag == null) {
+                    invalidEntries.add("blockDespawn.materials: " + name);
+                    continue;
+                }
+                for (Material material : tag.getValues()) {
+                    fromTags.put(material, time);
+                }
+                configuredDespawnTimes.put(name, time);
+            } else {
+                Material material = Material.matchMaterial(name);
+                if (material != null && material.isBlock()) {
+                    materialDespawnTimes.put(material, time);
+                    configuredDespawnTimes.put(name, time);
+                } else {
+                    invalidEntries.add("blockDespawn.materials: " + name);
+                }
+            }
+        }
+        fromTags.forEach(materialDespawnTimes::putIfAbsent);
+    }
+
+    private static Tag<Material> parseBlockTag(String name) {
+        String lowerCase = name.toLowerCase();
+        NamespacedKey key = lowerCase.contains(":") ? NamespacedKey.fromString(lowerCase)
+                : NamespacedKey.minecraft(lowerCase);
+        return key != null ? Bukkit.getTag(Tag.REGISTRY_BLOCKS, key, Material.class) : null;
+    }
+
+    /**
+     * Kompiluje ustawienia świata z jego sekcji config.yml (null = ustawienia domyślne).
+     */
+    public static WorldPolicy compile(ConfigurationSection section, World world) {
+        return section == null ? DEFAULT : new WorldPolicy(section, world);
+    }
+
+    public boolean isWaterFlowEnabled() {
+        return waterFlow;
+    }
+
+    public boolean isLavaFlowEnabled() {
+        return lavaFlow;
+    }
+
+    public boolean isRedstoneMechanismBlocked() {
+        return redstoneBlocked;
+    }
+
+    public boolean isBlockDestructionAllowed() {
+        return destructionAllowed;
+    }
+
+    public boolean isBlockDespawnEnabled() {
+        return despawnEnabled;
+    }
+
+    /**
+     * Czas do zniknięcia bloku w milisekundach (0 lub mniej = nieprawidłowy czas).
+     */
+    public long getBlockDespawnTimeMs() {
+        return despawnTimeMs;
+    }
+
+    /**
+     * Czas do zniknięcia bloku danego materiału w milisekundach (null = materiał nieznany).
+     * Materiały bez własnego czasu używają blockDespawn.time.
+     */
+    public long getBlockDespawnTimeMs(Material material) {
+        if (material == null) {
+            return despawnTimeMs;
+        }
+        Long time = materialDespawnTimes.get(material);
+        return time != null ? time : despawnTimeMs;
+    }
+
+    /**
+     * Czasy znikania z blockDespawn.materials w kolejności i zapisie z config.yml
+     * (klucz to nazwa materiału albo tag z "#", bez rozwijania tagów).
+     */
+    public Map<String, Long> getConfiguredDespawnTimes() {
+        return Collections.unmodifiableMap(configuredDespawnTimes);
+    }
+
+    /**
+     * Sprawdza czy inne ustawienia mają te same czasy znikania bloków - wtedy kolejka
+     * wygaśnięć świata nie musi być budowana od nowa.
+     */
+    public boolean hasSameDespawnTimes(WorldPolicy other) {
+        return despawnEnabled == other.despawnEnabled
+                && despawnTimeMs == other.despawnTimeMs
+                && materialDespawnTimes.equals(other.materialDespawnTimes);
+    }
+
+    public boolean isBlockDisallowed(Material material) {
+        return disallowedBlocks.contains(material);
+    }
+
+    public boolean isEntityDisallowed(EntityType entityType) {
+        return disallowedEntities.contains(entityType);
+    }
+
+    /**
+     * @return Limit lub -1 jeśli brak limitu
+     */
+    public int getEntityLimit(EntityType entityType) {
+        return entityLimits[LimitScope.WORLD.ordinal()][entityType.ordinal()];
+    }
+
+    /**
+     * @return Limit w danym zakresie lub -1 jeśli brak limitu
+     */
+    public int getEntityLimit(LimitScope scope, EntityType entityType) {
+        return entityLimits[scope.ordinal()][entityType.ordinal()];
+    }
+
+    /**
+     * Sprawdza czy świat ma jakikolwiek limit na chunk lub region.
+     */
+    public boolean hasSpatialLimits() {
+        return spatialLimits;
+    }
+
+    /**
+     * Sprawdza czy typ entity ma limit na chunk lub region.
+     */
+    public boolean isSpatiallyLimited(EntityType entityType) {
+        return entityLimits[LimitScope.CHUNK.ordinal()][entityType.ordinal()] != -1
+                || entityLimits[LimitScope.REGION.ordinal()][entityType.ordinal()] != -1;
+    }
+
+    public int getRegionSize() {
+        return regionSize;
+    }
+
+    /**
+     * Sprawdza czy inne ustawienia liczą entity w chunkach i regionach tak samo
+     * (te same typy i rozmiar regionu) - wtedy liczniki nie muszą być budowane od nowa.
+     */
+    public boolean hasSameSpatialTracking(WorldPolicy other) {
+        if (regionSize != other.regionSize) {
+            return false;
+        }
+        for (EntityType type : ENTITY_TYPES) {
+            if (isSpatiallyLimited(type) != other.isSpatiallyLimited(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sprawdza czy podana godzina mieści się w dozwolonym zakresie spawnu entity.
+     */
+    public boolean isSpawnTimeAllowed(EntityType entityType, LocalTime now) {
+        LocalTime from = spawnFrom[entityType.ordinal()];
+        if (from == null) {
+            return true;
+        }
+        LocalTime to = spawnTo[entityType.ordinal()];
+
+        if (from.isAfter(to)) {
+            return !now.isBefore(from) || !now.isAfter(to);
+        }
+        return !now.isBefore(from) && !now.isAfter(to);
+    }
+
+    public boolean hasSpawnTime(EntityType entityType) {
+        return spawnFrom[entityType.ordinal()] != null;
+    }
+
+    /**
+     * Punkty spawnu świata według nazwy.
+     */
+    public Map<String, SpawnPoint> getSpawnPoints() {
+        return spawnPoints;
+    }
+
+    /**
+     * @return Punkt spawnu lub null jeśli świat nie ma punktu o tej nazwie
+     */
+    public SpawnPoint getSpawnPoint(String name) {
+        return spawnPoints.get(name);
+    }
+
+    /**
+     * Wpisy pominięte przy kompilacji, bo nie odpowiadają żadnemu blokowi, entity lub godzinie.
+     */
+    public List<String> getInvalidEntries() {
+        return Collections.unmodifiableList(invalidEntries);
+    }
+
+    static EntityType parseEntityType(String name) {
+        try {
+            return EntityType.valueOf(name.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package dev.nxms.guardcore.listeners;
 import dev.nxms.guardcore.GuardCore;
 import dev.nxms.guardcore.config.ConfigManager;
 import dev.nxms.guardcore.config.MessageManager;
+import dev.nxms.guardcore.config.WorldPolicy;
+import dev.nxms.guardcore.utils.BlockKey;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
@@ -30,11 +32,11 @@ public class BlockListener implements Listener {
     public void onBlockPlace(BlockPlaceEvent event) {
         Player player = event.getPlayer();
         Block block = event.getBlock();
-        String worldName = block.getWorld().getName();
-        String blockType = block.getType().name();
+        WorldPolicy policy = config.getPolicy(block.getWorld());
+        Material material = block.getType();
 
         // Sprawdź czy blok jest na liście zakazanych
-        if (config.isBlockDisallowed(worldName, blockType)) {
+        if (policy.isBlockDisallowed(material)) {
             // Sprawdź czy gracz ma bypass
             if (player.hasPermission("guardcore.bypass")
                     && plugin.getBypassManager().hasDisallowedBlocksBypass(player.getUniqueId())) {
@@ -43,7 +45,7 @@ public class BlockListener implements Listener {
                 // Brak bypass - zablokuj
                 event.setCancelled(true);
                 messages.send(player, "disallowedblock-prevented",
-                        MessageManager.placeholders("block", blockType));
+                        MessageManager.placeholders("block", material.name()));
                 return;
             }
         }
@@ -53,14 +55,17 @@ public class BlockListener implements Listener {
                 && plugin.getBypassManager().hasBlockDespawnBypass(player.getUniqueId());
 
         // Sprawdź czy trzeba rejestrować blok
-        boolean despawnEnabled = config.isBlockDespawnEnabled(worldName);
-        boolean destructionDisabled = !config.isBlockDestructionAllowed(worldName);
+        boolean despawnEnabled = policy.isBlockDespawnEnabled();
+        boolean destructionDisabled = !policy.isBlockDestructionAllowed();
 
         // Rejestruj blok jeśli potrzebne (despawn lub ochrona przed niszczeniem)
         if (despawnEnabled || destructionDisabled) {
             // trackForDespawn = true tylko jeśli despawn jest włączony I gracz nie ma bypass
             boolean trackForDespawn = despawnEnabled && !hasDespawnBypass;
             config.addPlacedBlock(block.getLocation(), player.getUniqueId(), hasDespawnBypass, trackForDespawn);
+            if (trackForDespawn) {
+                plugin.getBlockDespawnManager().scheduleBlock(block.getWorld().getName(), BlockKey.pack(block.getLocation()));
+            }
         }
     }
 
@@ -82,11 +87,10 @@ public class BlockListener implements Listener {
         Player player = event.getPlayer();
         Block block = event.getBlock();
         Location location = block.getLocation();
-        String worldName = block.getWorld().getName();
 
         // Sprawdź czy niszczenie bloków jest dozwolone
         // false = tylko bloki postawione przez graczy mogą być niszczone
-        if (!config.isBlockDestructionAllowed(worldName)) {
+        if (!config.getPolicy(block.getWorld()).isBlockDestructionAllowed()) {
             // Sprawdź czy gracz ma bypass na niszczenie bloków
             boolean hasDestructionBypass = player.hasPermission("guardcore.bypass")
                     && plugin.getBypassManager().hasBlockDestructionBypass(player.getUniqueId());
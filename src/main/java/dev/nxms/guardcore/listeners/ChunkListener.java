@@ -0,0 +1,49 @@
+package dev.nxms.guardcore.listeners;
+
+import dev.nxms.guardcore.GuardCore;
+import dev.nxms.guardcore.storage.PlacedBlockStore;
+import org.bukkit.Chunk;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+/**
+ * Listener wczytujący shardy postawionych bloków z plików regionów razem z chunkami (i zwalniający je po wyładowaniu)
+ * oraz usuwający wygasłe bloki, które czekały na załadowanie chunka.
+ */
+public class ChunkListener implements Listener {
+
+    private final GuardCore plugin;
+
+    public ChunkListener(GuardCore plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        Chunk chunk = event.getChunk();
+        getStore().onChunkLoad(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
+        // Po załadowaniu sharda - wygasłe bloki czekające na ten chunk mogą zostać usunięte
+        plugin.getBlockDespawnManager().onChunkLoad(chunk);
+        // Chunk mógł zostać zmieniony poza serwerem - bezpieczne pozycje punktów spawnu liczone od nowa
+        plugin.getEntitySpawnPointManager().invalidateSafeLocations(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        Chunk chunk = event.getChunk();
+        getStore().onChunkUnload(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        getStore().unloadWorld(event.getWorld().getName());
+    }
+
+    private PlacedBlockStore getStore() {
+        return plugin.getConfigManager().getPlacedBlockStore();
+    }
+}
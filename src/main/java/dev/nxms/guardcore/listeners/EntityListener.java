@@ -41,9 +41,7 @@ public class EntityListener implements Listener {
         World world = event.getLocation().getWorld();
         if (world == null) return;
 
-        String worldName = world.getName();
         EntityType entityType = event.getEntityType();
-        String entityName = entityType.name();
 
         CreatureSpawnEvent.SpawnReason reason = event.getSpawnReason();
 
@@ -54,13 +52,13 @@ public class EntityListener implements Listener {
         }
 
         // Sprawdź czy entity jest na liście zakazanych
-        if (config.isEntityDisallowed(worldName, entityName)) {
+        if (config.getPolicy(world).isEntityDisallowed(entityType)) {
             event.setCancelled(true);
             return;
         }
 
         // Sprawdź limit entity
-        if (!limitManager.canSpawnEntity(world, entityType)) {
+        if (!limitManager.canSpawnEntity(event.getLocation(), entityType)) {
             event.setCancelled(true);
             return;
         }
@@ -68,7 +66,7 @@ public class EntityListener implements Listener {
         // Sprawdź czas spawnu (nie dotyczy jajek spawn - to obsługujemy osobno)
         if (reason != CreatureSpawnEvent.SpawnReason.SPAWNER_EGG &&
                 reason != CreatureSpawnEvent.SpawnReason.EGG) {
-            if (!spawnTimeManager.canSpawnAtCurrentTime(worldName, entityType)) {
+            if (!spawnTimeManager.canSpawnAtCurrentTime(world, entityType)) {
                 event.setCancelled(true);
                 return;
             }
@@ -80,12 +78,8 @@ public class EntityListener implements Listener {
         World world = event.getLocation().getWorld();
         if (world == null) return;
 
-        String worldName = world.getName();
-        EntityType entityType = event.getEntityType();
-        String entityName = entityType.name();
-
         // Sprawdź czy entity jest na liście zakazanych
-        if (config.isEntityDisallowed(worldName, entityName)) {
+        if (config.getPolicy(world).isEntityDisallowed(event.getEntityType())) {
             event.setCancelled(true);
         }
     }
@@ -94,7 +88,6 @@ public class EntityListener implements Listener {
     public void onEggThrow(PlayerEggThrowEvent event) {
         Player player = event.getPlayer();
         World world = player.getWorld();
-        String worldName = world.getName();
 
         // Sprawdź czy gracz ma uprawnienia admina
         if (player.hasPermission("guardcore.admin")) {
@@ -102,7 +95,7 @@ public class EntityListener implements Listener {
         }
 
         // Sprawdź czy kura jest na liście zakazanych
-        if (config.isEntityDisallowed(worldName, "CHICKEN")) {
+        if (config.getPolicy(world).isEntityDisallowed(EntityType.CHICKEN)) {
             event.setHatching(false);
             messages.send(player, "entity-spawn-blocked", MessageManager.placeholders(
                     "entity", "CHICKEN"
@@ -111,7 +104,7 @@ public class EntityListener implements Listener {
         }
 
         // Sprawdź limit kur
-        if (!limitManager.canSpawnEntity(world, EntityType.CHICKEN)) {
+        if (!limitManager.canSpawnEntity(player.getLocation(), EntityType.CHICKEN)) {
             event.setHatching(false);
             messages.send(player, "entity-limit-reached", MessageManager.placeholders(
                     "entity", "CHICKEN"
@@ -120,7 +113,7 @@ public class EntityListener implements Listener {
         }
 
         // Sprawdź czas spawnu kur
-        if (!spawnTimeManager.canSpawnAtCurrentTime(worldName, EntityType.CHICKEN)) {
+        if (!spawnTimeManager.canSpawnAtCurrentTime(world, EntityType.CHICKEN)) {
             event.setHatching(false);
             messages.send(player, "entity-spawn-time-blocked", MessageManager.placeholders(
                     "entity", "CHICKEN"
@@ -153,7 +146,7 @@ public class EntityListener implements Listener {
             return;
         }
 
-        String worldName = block.getWorld().getName();
+        World world = block.getWorld();
         EntityType entityType = getEntityTypeFromSpawnEgg(material);
 
         if (entityType == null) {
@@ -168,7 +161,7 @@ public class EntityListener implements Listener {
         }
 
         // Sprawdź czy entity jest na liście zakazanych
-        if (config.isEntityDisallowed(worldName, entityName)) {
+        if (config.getPolicy(world).isEntityDisallowed(entityType)) {
             event.setCancelled(true);
             messages.send(player, "entity-spawn-blocked", MessageManager.placeholders(
                     "entity", entityName
@@ -177,7 +170,7 @@ public class EntityListener implements Listener {
         }
 
         // Sprawdź limit entity
-        if (!limitManager.canSpawnEntity(block.getWorld(), entityType)) {
+        if (!limitManager.canSpawnEntity(block.getLocation(), entityType)) {
             event.setCancelled(true);
             messages.send(player, "entity-limit-reached", MessageManager.placeholders(
                     "entity", entityName
@@ -186,7 +179,7 @@ public class EntityListener implements Listener {
         }
 
         // Sprawdź czas spawnu
-        if (!spawnTimeManager.canSpawnAtCurrentTime(worldName, entityType)) {
+        if (!spawnTimeManager.canSpawnAtCurrentTime(world, entityType)) {
             event.setCancelled(true);
             messages.send(player, "entity-spawn-time-blocked", MessageManager.placeholders(
                     "entity", entityName
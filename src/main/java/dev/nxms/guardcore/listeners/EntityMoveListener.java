@@ -0,0 +1,28 @@
+package dev.nxms.guardcore.listeners;
+
+import dev.nxms.guardcore.managers.EntityLimitManager;
+import io.papermc.paper.event.entity.EntityMoveEvent;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+/**
+ * Listener przenoszący entity między licznikami chunków i regionów.
+ *
+ * Paper wywołuje EntityMoveEvent dla każdej żywej entity w każdym ticku tylko wtedy,
+ * gdy zdarzenie ma jakiś listener, dlatego EntityLimitManager rejestruje ten listener
+ * tylko na czas, gdy któryś świat ma limity na chunk lub region.
+ */
+public class EntityMoveListener implements Listener {
+
+    private final EntityLimitManager limitManager;
+
+    public EntityMoveListener(EntityLimitManager limitManager) {
+        this.limitManager = limitManager;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityMove(EntityMoveEvent event) {
+        limitManager.onEntityMove(event.getEntity(), event.getFrom(), event.getTo());
+    }
+}
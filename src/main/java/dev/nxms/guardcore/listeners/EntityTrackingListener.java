@@ -0,0 +1,45 @@
+package dev.nxms.guardcore.listeners;
+
+import com.destroystokyo.paper.event.entity.EntityAddToWorldEvent;
+import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
+import dev.nxms.guardcore.GuardCore;
+import dev.nxms.guardcore.managers.EntityLimitManager;
+import dev.nxms.guardcore.managers.EntitySpawnPointManager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityTeleportEvent;
+
+/**
+ * Listener utrzymujący liczniki entity używane przez limity entity i limity punktów spawnu.
+ */
+public class EntityTrackingListener implements Listener {
+
+    private final EntityLimitManager limitManager;
+    private final EntitySpawnPointManager spawnPointManager;
+
+    public EntityTrackingListener(GuardCore plugin) {
+        this.limitManager = plugin.getEntityLimitManager();
+        this.spawnPointManager = plugin.getEntitySpawnPointManager();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityAdd(EntityAddToWorldEvent event) {
+        limitManager.onEntityAdd(event.getEntity());
+        spawnPointManager.onEntityAdd(event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityRemove(EntityRemoveFromWorldEvent event) {
+        limitManager.onEntityRemove(event.getEntity());
+        spawnPointManager.onEntityRemove(event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityTeleport(EntityTeleportEvent event) {
+        // Teleport do innego świata to usunięcie i dodanie entity (EntityRemoveFromWorldEvent, EntityAddToWorldEvent)
+        if (event.getTo() != null && event.getFrom().getWorld() == event.getTo().getWorld()) {
+            limitManager.onEntityMove(event.getEntity(), event.getFrom(), event.getTo());
+        }
+    }
+}
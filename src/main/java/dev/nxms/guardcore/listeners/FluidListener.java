@@ -2,6 +2,7 @@ package dev.nxms.guardcore.listeners;
 
 import dev.nxms.guardcore.GuardCore;
 import dev.nxms.guardcore.config.ConfigManager;
+import dev.nxms.guardcore.config.WorldPolicy;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
@@ -34,13 +35,13 @@ public class FluidListener implements Listener {
     public void onBlockFromTo(BlockFromToEvent event) {
         Block block = event.getBlock();
         Block toBlock = event.getToBlock();
-        String worldName = block.getWorld().getName();
         Material material = block.getType();
         Location sourceLocation = block.getLocation();
+        WorldPolicy policy = config.getPolicy(block.getWorld());
 
         // Sprawdź wodę
         if (isWater(material)) {
-            if (!config.isWaterFlowEnabled(worldName)) {
+            if (!policy.isWaterFlowEnabled()) {
                 // Sprawdź czy źródło wody było postawione przez gracza z bypass
                 UUID placerUUID = config.getFluidPlacedByPlayerUUID(sourceLocation);
                 if (placerUUID != null && plugin.getBypassManager().hasWaterFlowBypass(placerUUID)) {
@@ -56,7 +57,7 @@ public class FluidListener implements Listener {
 
         // Sprawdź lawę
         if (isLava(material)) {
-            if (!config.isLavaFlowEnabled(worldName)) {
+            if (!policy.isLavaFlowEnabled()) {
                 // Sprawdź czy źródło lawy było postawione przez gracza z bypass
                 UUID placerUUID = config.getFluidPlacedByPlayerUUID(sourceLocation);
                 if (placerUUID != null && plugin.getBypassManager().hasLavaFlowBypass(placerUUID)) {
@@ -108,9 +108,8 @@ public class RedstoneListener implements Listener {
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onRedstoneChange(BlockRedstoneEvent event) {
         Block block = event.getBlock();
-        String worldName = block.getWorld().getName();
 
-        if (config.isRedstoneMechanismBlocked(worldName)) {
+        if (config.getPolicy(block.getWorld()).isRedstoneMechanismBlocked()) {
             // Zablokuj zmianę sygnału redstone
             event.setNewCurrent(event.getOldCurrent());
         }
@@ -130,9 +129,7 @@ public class RedstoneListener implements Listener {
             return;
         }
 
-        String worldName = block.getWorld().getName();
-
-        if (config.isRedstoneMechanismBlocked(worldName)) {
+        if (config.getPolicy(block.getWorld()).isRedstoneMechanismBlocked()) {
             Material material = block.getType();
 
             if (INTERACTIVE_REDSTONE.contains(material)) {
@@ -0,0 +1,24 @@
+package dev.nxms.guardcore.listeners;
+
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import dev.nxms.guardcore.GuardCore;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+/**
+ * Listener przekazujący długość każdego ticku serwera do TaskGovernor.
+ */
+public class ServerTickListener implements Listener {
+
+    private final GuardCore plugin;
+
+    public ServerTickListener(GuardCore plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onTickEnd(ServerTickEndEvent event) {
+        plugin.getTaskGovernor().onTickEnd(event.getTickDuration());
+    }
+}
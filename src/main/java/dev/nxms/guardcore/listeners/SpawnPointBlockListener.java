@@ -0,0 +1,97 @@
+package dev.nxms.guardcore.listeners;
+
+import dev.nxms.guardcore.GuardCore;
+import dev.nxms.guardcore.managers.EntitySpawnPointManager;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.player.PlayerBucketEmptyEvent;
+
+import java.util.List;
+
+/**
+ * Listener unieważniający bezpieczne pozycje punktów spawnu po zmianie bloków w ich chunkach.
+ */
+public class SpawnPointBlockListener implements Listener {
+
+    private final EntitySpawnPointManager spawnPointManager;
+
+    public SpawnPointBlockListener(GuardCore plugin) {
+        this.spawnPointManager = plugin.getEntitySpawnPointManager();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        spawnPointManager.onBlockChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        spawnPointManager.onBlockChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurn(BlockBurnEvent event) {
+        spawnPointManager.onBlockChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketEmpty(PlayerBucketEmptyEvent event) {
+        spawnPointManager.onBlockChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onFluidFlow(BlockFromToEvent event) {
+        spawnPointManager.onBlockChange(event.getToBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityChangeBlock(EntityChangeBlockEvent event) {
+        spawnPointManager.onBlockChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        onBlocksChange(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        onBlocksChange(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+        onBlocksMove(event.getBlocks(), event.getDirection());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event) {
+        onBlocksMove(event.getBlocks(), event.getDirection());
+    }
+
+    private void onBlocksChange(List<Block> blocks) {
+        for (Block block : blocks) {
+            spawnPointManager.onBlockChange(block);
+        }
+    }
+
+    // Przesunięte bloki zmieniają zarówno swoje stare, jak i nowe miejsce
+    private void onBlocksMove(List<Block> blocks, BlockFace direction) {
+        for (Block block : blocks) {
+            spawnPointManager.onBlockChange(block);
+            spawnPointManager.onBlockChange(block.getRelative(direction));
+        }
+    }
+}
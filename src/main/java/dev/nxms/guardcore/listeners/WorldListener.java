@@ -0,0 +1,35 @@
+package dev.nxms.guardcore.listeners;
+
+import dev.nxms.guardcore.GuardCore;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+/**
+ * Listener przygotowujący dane światów (ustawienia, liczniki entity, punkty spawnu) ładowanych i wyładowywanych
+ * w trakcie działania serwera.
+ */
+public class WorldListener implements Listener {
+
+    private final GuardCore plugin;
+
+    public WorldListener(GuardCore plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onWorldLoad(WorldLoadEvent event) {
+        plugin.getConfigManager().loadPolicy(event.getWorld());
+        plugin.getEntityLimitManager().seedWorld(event.getWorld());
+        plugin.getEntitySpawnPointManager().reload();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        plugin.getConfigManager().unloadPolicy(event.getWorld());
+        plugin.getEntityLimitManager().unloadWorld(event.getWorld());
+        plugin.getEntitySpawnPointManager().reload();
+    }
+}
@@ -2,129 +2,675 @@ package dev.nxms.guardcore.managers;
 
 import dev.nxms.guardcore.GuardCore;
 import dev.nxms.guardcore.config.ConfigManager;
-import dev.nxms.guardcore.utils.TimeParser;
+import dev.nxms.guardcore.config.WorldPolicy;
+import dev.nxms.guardcore.storage.PlacedBlockMap;
+import dev.nxms.guardcore.storage.LongList;
+import dev.nxms.guardcore.storage.LongObjectMap;
+import dev.nxms.guardcore.storage.MaterialPalette;
+import dev.nxms.guardcore.storage.PlacedBlockWorld;
+import dev.nxms.guardcore.utils.BlockKey;
 import org.bukkit.Bukkit;
-import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.Chunk;
 import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
 import org.bukkit.scheduler.BukkitTask;
 
 import java.util.*;
-
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Usuwa bloki postawione przez graczy po upływie czasu ustawionego dla świata.
+ *
+ * Bloki trafiają do kolejki wygaśnięć (DespawnQueue) przy postawieniu, a kolejki światów
+ * są budowane od nowa przy starcie i po zmianie czasów znikania: bloki z plików regionów
+ * w wątku I/O, a bloki załadowanych chunków w wątku głównym, po kilka tysięcy na tick.
+ * Po zmianie samych czasów materiałów (blockDespawn.materials) do kolejki trafiają ponownie
+ * tylko bloki zmienionych materiałów - wątek I/O pomija chunki bez nich (lista materiałów w tabeli chunków).
+ * Czas wygaśnięcia zależy od materiału bloku (blockDespawn.materials),
+ * więc różne czasy nie kosztują nic więcej. Co tick sprawdzane są tylko bloki, które faktycznie wygasły. Wygasłe bloki czekają w jednej kolejce usuwania,
+ * z której co tick usuwana jest ograniczona liczba bloków (limit bloków i czasu na tick,
+ * zmniejszany przez TaskGovernor, gdy serwer nie nadąża).
+ *
+ * Bloki w wyładowanych chunkach nigdy nie wymuszają ładowania chunka - czekają
+ * w DeferredDespawns i są usuwane razem, gdy chunk zostanie załadowany.
+ *
+ * Bloki, które wygasły przed zbudowaniem kolejki (np. gdy serwer był wyłączony), są usuwane
+ * w fazie nadrabiania: od najstarszych, w ograniczonym tempie i z przerwą, gdy serwer nie nadąża.
+ *
+ * Z wyłączoną fizyką (despawn.physics: false) bloki są usuwane bez aktualizacji sąsiadów,
+ * posortowane według sekcji chunka, a po partii sąsiedzi usuniętych bloków (piasek, żwir,
+ * ciecze, bloki bez podparcia) są aktualizowani jednym przejściem na chunk.
+ */
 public class BlockDespawnManager {
 
     private final GuardCore plugin;
     private final ConfigManager config;
+    private final TaskGovernor governor;
     private BukkitTask despawnTask;
 
-    private static final int CHECK_INTERVAL_SECONDS = 1;
-    private static final double DESPAWN_DELAY_SECONDS = 0.25;
+    // Co ile ticków próbować załadować w tle chunki z czekającymi blokami
+    private static final long CHUNK_LOAD_INTERVAL_TICKS = 20L;
+    // Ile bloków załadowanych chunków dodać na tick do budowanej kolejki
+    private static final int SCHEDULE_BLOCKS_PER_TICK = 5000;
+
+    // Nazwa świata -> kolejka wygaśnięć
+    private final Map<String, WorldSchedule> schedules = new HashMap<>();
+
+    // Wygasłe bloki czekające na usunięcie (bez duplikatów)
+    private final ArrayDeque<BlockToDespawn> removalQueue = new ArrayDeque<>();
+    private final Set<BlockToDespawn> inFlight = new HashSet<>();
+    // Wygasłe bloki w wyładowanych chunkach
+    private final DeferredDespawns deferred = new DeferredDespawns();
+
+    // Limity usuwania na tick
+    private int blocksPerTick;
+    private long maxTickNanos;
+    private boolean physics;
+    private boolean loadChunks;
+    private int chunkLoadsPerSecond;
+    private int pendingChunkLoads;
+    private int catchUpBlocksPerTick;
+    private double catchUpMaxTickTimeMs;
+    private boolean catchUpPaused;
+    private long ticks;
+
+    // Statystyki
+    private long removedTotal;
+    private int removedLastTick;
+    private long removalNanosTotal;
+
+    // Kolejność sortowania partii bez fizyki: świat, chunk, sekcja chunka
+    private static final Comparator<BlockToDespawn> SECTION_ORDER = Comparator
+            .comparing((BlockToDespawn block) -> block.world.getUID())
+            .thenComparingLong(block -> BlockKey.chunkKeyOf(block.position))
+            .thenComparingInt(block -> BlockKey.unpackY(block.position) >> 4);
+
+    private static final BlockFace[] NEIGHBOR_FACES = {
+            BlockFace.UP, BlockFace.DOWN, BlockFace.NORTH, BlockFace.SOUTH, BlockFace.EAST, BlockFace.WEST
+    };
 
     public BlockDespawnManager(GuardCore plugin) {
         this.plugin = plugin;
         this.config = plugin.getConfigManager();
+        this.governor = plugin.getTaskGovernor();
         startDespawnTask();
     }
 
     private void startDespawnTask() {
-        long intervalTicks = CHECK_INTERVAL_SECONDS * 20L;
-        despawnTask = Bukkit.getScheduler().runTaskTimer(plugin, this::checkBlocksForDespawn, intervalTicks, intervalTicks);
-        plugin.getLogger().info("Block despawn task started. Checking every " + CHECK_INTERVAL_SECONDS + " second(s)");
+        blocksPerTick = config.getDespawnBlocksPerTick();
+        maxTickNanos = config.getDespawnMaxTickTimeMs() * 1_000_000L;
+        physics = config.isDespawnPhysicsEnabled();
+        catchUpBlocksPerTick = Math.max(1, config.getDespawnCatchUpBlocksPerSecond() / 20);
+        catchUpMaxTickTimeMs = config.getDespawnCatchUpMaxTickTimeMs();
+        loadChunks = config.isDespawnChunkLoadingEnabled();
+        chunkLoadsPerSecond = config.getDespawnChunkLoadsPerSecond();
+        despawnTask = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        plugin.getLogger().info("Block despawn task started. Removing up to " + blocksPerTick
+                + " block(s) per tick.");
+    }
+
+    /**
+     * Dodaje świeżo postawiony blok do kolejki wygaśnięć świata.
+     */
+    public void scheduleBlock(String worldName, long position) {
+        WorldSchedule schedule = schedules.get(worldName);
+        if (schedule == null || !schedule.isActive()) {
+            // Kolejka świata jeszcze nie istnieje - blok trafi do niej przy jej budowaniu
+            return;
+        }
+        PlacedBlockMap shard = config.getPlacedBlockStore().getShard(worldName, position);
+        int slot = shard != null ? shard.indexOf(position) : -1;
+        if (slot >= 0 && PlacedBlockMap.shouldDespawn(shard.flagsAt(slot))) {
+            long despawnTimeMs = schedule.getDespawnTimeMs(shard.materialAt(slot));
+            if (despawnTimeMs > 0) {
+                schedule.queue.add(shard.placedTimeAt(slot) + despawnTimeMs, position);
+            }
+        }
+    }
+
+    /**
+     * Zwraca liczbę bloków w kolejkach wygaśnięć.
+     */
+    public int getScheduledCount() {
+        int count = 0;
+        for (WorldSchedule schedule : schedules.values()) {
+            count += schedule.queue.size();
+        }
+        return count;
+    }
+
+    /**
+     * Zwraca liczbę wygasłych bloków czekających na usunięcie.
+     */
+    public int getRemovalQueueSize() {
+        return removalQueue.size();
+    }
+
+    /**
+     * Zwraca liczbę wygasłych bloków czekających na załadowanie chunka.
+     */
+    public int getDeferredCount() {
+        return deferred.size();
+    }
+
+    public int getDeferredChunkCount() {
+        return deferred.getChunkCount();
+    }
+
+    public long getRemovedTotal() {
+        return removedTotal;
+    }
+
+    public int getRemovedLastTick() {
+        return removedLastTick;
     }
 
-    private void checkBlocksForDespawn() {
-        Map<String, ConfigManager.PlacedBlockData> placedBlocks = config.getPlacedBlocksData();
+    /**
+     * Średni czas usunięcia jednego bloku (w nanosekundach), łącznie z aktualizacją sąsiadów.
+     */
+    public long getAverageRemovalNanos() {
+        return removedTotal > 0 ? removalNanosTotal / removedTotal : 0;
+    }
+
+    public boolean isPhysicsEnabled() {
+        return physics;
+    }
+
+    /**
+     * Czy któryś świat jest w fazie nadrabiania zaległych bloków.
+     */
+    public boolean isCatchingUp() {
+        for (WorldSchedule schedule : schedules.values()) {
+            if (schedule.catchUpTotal > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Liczba zaległych bloków do nadrobienia (we wszystkich światach) na początku fazy nadrabiania.
+     */
+    public int getCatchUpTotal() {
+        int total = 0;
+        for (WorldSchedule schedule : schedules.values()) {
+            total += schedule.catchUpTotal;
+        }
+        return total;
+    }
 
-        if (placedBlocks.isEmpty()) {
+    /**
+     * Liczba zaległych bloków już pobranych z kolejki w fazie nadrabiania.
+     */
+    public int getCatchUpDrained() {
+        int drained = 0;
+        for (WorldSchedule schedule : schedules.values()) {
+            drained += schedule.catchUpDrained;
+        }
+        return drained;
+    }
+
+    /**
+     * Czy nadrabianie zostało wstrzymane w ostatnim ticku, bo serwer nie nadążał.
+     */
+    public boolean isCatchUpPaused() {
+        return catchUpPaused;
+    }
+
+    public int getCatchUpBlocksPerSecond() {
+        return catchUpBlocksPerTick * 20;
+    }
+
+    public int getBlocksPerTick() {
+        return blocksPerTick;
+    }
+
+    public long getMaxTickTimeMs() {
+        return maxTickNanos / 1_000_000L;
+    }
+
+    private void tick() {
+        collectExpiredBlocks();
+        removeExpiredBlocks();
+
+        if (++ticks % CHUNK_LOAD_INTERVAL_TICKS == 0) {
+            loadDeferredChunks();
+        }
+    }
+
+    /**
+     * Przenosi czekające bloki załadowanego chunka do kolejki usuwania.
+     * Wywoływane przy ChunkLoadEvent, po załadowaniu sharda postawionych bloków.
+     */
+    public void onChunkLoad(Chunk chunk) {
+        if (deferred.isEmpty()) {
+            return;
+        }
+        World world = chunk.getWorld();
+        LongList positions = deferred.take(world.getName(), BlockKey.chunkKey(chunk.getX(), chunk.getZ()));
+        WorldSchedule schedule = schedules.get(world.getName());
+        if (positions == null || schedule == null || !schedule.isActive()) {
+            // Znikanie wyłączone w międzyczasie - bloki zostają
             return;
         }
 
+        PlacedBlockWorld placedBlocks = config.getPlacedBlockStore().getWorld(world.getName());
         long currentTime = System.currentTimeMillis();
-        List<BlockToDespawn> blocksToRemove = new ArrayList<>();
+        for (int i = 0; i < positions.size(); i++) {
+            enqueueIfExpired(world, placedBlocks, positions.get(i), schedule, currentTime);
+        }
+    }
 
-        for (Map.Entry<String, ConfigManager.PlacedBlockData> entry : placedBlocks.entrySet()) {
-            String locationKey = entry.getKey();
-            ConfigManager.PlacedBlockData blockData = entry.getValue();
+    /**
+     * Gdy serwer ma zapas czasu (TaskGovernor.isIdle), ładuje w tle kilka chunków z czekającymi blokami
+     * (bloki usuwa potem onChunkLoad). Wyłączone domyślnie - despawn.loadUnloadedChunks.
+     */
+    private void loadDeferredChunks() {
+        if (!loadChunks || deferred.isEmpty() || pendingChunkLoads > 0 || !removalQueue.isEmpty()
+                || !governor.isIdle()) {
+            return;
+        }
 
-            // Sprawdź czy blok powinien zniknąć
-            if (!blockData.shouldDespawn()) {
+        int budget = chunkLoadsPerSecond;
+        for (String worldName : deferred.getWorldNames()) {
+            World world = Bukkit.getWorld(worldName);
+            if (world == null) {
                 continue;
             }
+            for (long chunkKey : deferred.getChunkKeys(worldName)) {
+                if (budget-- <= 0) {
+                    return;
+                }
+                pendingChunkLoads++;
+                world.getChunkAtAsync(BlockKey.chunkX(chunkKey), BlockKey.chunkZ(chunkKey))
+                        .whenComplete((chunk, error) -> {
+                            pendingChunkLoads--;
+                            // Chunk mógł być już załadowany (bez ChunkLoadEvent)
+                            if (chunk != null) {
+                                onChunkLoad(chunk);
+                            }
+                        });
+            }
+        }
+    }
 
-            long placedTime = blockData.getPlacedTime();
+    /**
+     * Przenosi wygasłe bloki z kolejek wygaśnięć do kolejki usuwania.
+     */
+    private void collectExpiredBlocks() {
+        long currentTime = System.currentTimeMillis();
+        // Limit nadrabiania wspólny dla wszystkich światów; przerwa, gdy serwer nie nadąża
+        // albo poprzednia partia nie została jeszcze usunięta
+        int catchUpBudget = catchUpBlocksPerTick;
+        catchUpPaused = governor.getMspt() > catchUpMaxTickTimeMs
+                || removalQueue.size() >= blocksPerTick;
 
-            String[] parts = locationKey.split(":");
-            if (parts.length != 4) {
-                config.removePlacedBlockByKey(locationKey);
-                continue;
-            }
+        for (PlacedBlockWorld placedBlocks : config.getPlacedBlockStore().getWorlds()) {
+            String worldName = placedBlocks.getName();
 
-            String worldName = parts[0];
             World world = Bukkit.getWorld(worldName);
 
             if (world == null) {
                 continue;
             }
 
-            if (!config.isBlockDespawnEnabled(worldName)) {
-                continue;
+            WorldPolicy policy = config.getPolicy(world);
+
+            WorldSchedule schedule = schedules.get(worldName);
+            if (schedule == null || !schedule.policy.hasSameDespawnTimes(policy)) {
+                schedule = rebuildSchedule(placedBlocks, schedule, policy, currentTime);
+                schedules.put(worldName, schedule);
+            }
+            if (schedule.build != null) {
+                advanceBuild(placedBlocks, schedule);
             }
+            WorldSchedule current = schedule;
 
-            String despawnTimeStr = config.getBlockDespawnTime(worldName);
-            long despawnTimeMs = TimeParser.parseDuration(despawnTimeStr);
+            if (schedule.build == null && schedule.catchUpTotal > 0 && !schedule.queue.hasDue(schedule.catchUpUntil)) {
+                plugin.getLogger().info("Block despawn catch-up finished in world " + worldName + ".");
+                schedule.catchUpTotal = 0;
+                schedule.catchUpDrained = 0;
+            }
 
-            if (despawnTimeMs <= 0) {
+            if (!schedule.isActive() || !schedule.queue.hasDue(currentTime)) {
                 continue;
             }
 
-            long timePassed = currentTime - placedTime;
+            int limit = Integer.MAX_VALUE;
+            if (schedule.catchUpTotal > 0) {
+                if (catchUpPaused || catchUpBudget <= 0) {
+                    continue;
+                }
+                limit = catchUpBudget;
+            }
 
-            if (timePassed >= despawnTimeMs) {
-                try {
-                    int x = Integer.parseInt(parts[1]);
-                    int y = Integer.parseInt(parts[2]);
-                    int z = Integer.parseInt(parts[3]);
+            int polled = schedule.queue.pollDue(currentTime, limit, position -> {
+                // Chunk nie jest ładowany - blok poczeka na jego załadowanie
+                if (!isChunkLoaded(world, position)) {
+                    deferred.add(worldName, position);
+                    return;
+                }
+                enqueueIfExpired(world, placedBlocks, position, current, currentTime);
+            });
 
-                    blocksToRemove.add(new BlockToDespawn(locationKey, world, x, y, z, placedTime));
+            if (schedule.catchUpTotal > 0) {
+                schedule.catchUpDrained += polled;
+                catchUpBudget -= polled;
+            }
+        }
+    }
+
+    private void enqueueIfExpired(World world, PlacedBlockWorld placedBlocks, long position,
+                                  WorldSchedule schedule, long currentTime) {
+        long placedTime = getExpiredPlacedTime(placedBlocks, position, schedule, currentTime);
+        if (placedTime >= 0) {
+            BlockToDespawn block = new BlockToDespawn(world, position, placedTime);
+            if (inFlight.add(block)) {
+                removalQueue.add(block);
+            }
+        }
+    }
+
+    private static boolean isChunkLoaded(World world, long position) {
+        return world.isChunkLoaded(BlockKey.unpackX(position) >> 4, BlockKey.unpackZ(position) >> 4);
+    }
+
+    /**
+     * Usuwa bloki z kolejki usuwania w ramach limitu bloków i czasu na tick.
+     */
+    private void removeExpiredBlocks() {
+        removedLastTick = 0;
+        if (removalQueue.isEmpty()) {
+            return;
+        }
 
-                } catch (NumberFormatException e) {
-                    plugin.getLogger().warning("Invalid block location format: " + locationKey);
-                    config.removePlacedBlockByKey(locationKey);
+        // Budżet czasu od TaskGovernor (pełny maxTickTime, mniejszy lub zerowy przy obciążeniu)
+        long budget = governor.getBudgetNanos(TaskGovernor.Subsystem.DESPAWN);
+        if (budget <= 0) {
+            governor.recordThrottled(TaskGovernor.Subsystem.DESPAWN);
+            return;
+        }
+        int limit = Math.max(1, (int) (blocksPerTick * governor.getScale()));
+
+        long start = System.nanoTime();
+        long deadline = start + budget;
+        if (physics) {
+            while (removedLastTick < limit && System.nanoTime() < deadline) {
+                BlockToDespawn block = removalQueue.poll();
+                if (block == null) {
+                    break;
+                }
+                inFlight.remove(block);
+
+                if (removeBlock(block, true)) {
+                    removedLastTick++;
                 }
             }
+        } else {
+            removeBatchWithoutPhysics(limit, deadline);
+        }
+        long elapsed = System.nanoTime() - start;
+        removedTotal += removedLastTick;
+        removalNanosTotal += elapsed;
+        governor.record(TaskGovernor.Subsystem.DESPAWN, elapsed);
+    }
+
+    /**
+     * Usuwa partię bloków bez fizyki, sekcja po sekcji, a potem aktualizuje ich sąsiadów
+     * jednym przejściem na chunk.
+     */
+    private void removeBatchWithoutPhysics(int limit, long deadline) {
+        List<BlockToDespawn> batch = new ArrayList<>(Math.min(limit, removalQueue.size()));
+        while (batch.size() < limit && !removalQueue.isEmpty()) {
+            batch.add(removalQueue.poll());
         }
+        batch.sort(SECTION_ORDER);
+
+        // Świat -> klucz chunka -> usunięte pozycje
+        Map<World, LongObjectMap<LongList>> removed = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (System.nanoTime() >= deadline) {
+                // Koniec czasu - reszta partii wraca na początek kolejki (nadal jest w inFlight)
+                for (int j = batch.size() - 1; j >= i; j--) {
+                    removalQueue.addFirst(batch.get(j));
+                }
+                break;
+            }
 
-        if (!blocksToRemove.isEmpty()) {
-            blocksToRemove.sort(Comparator.comparingLong(b -> b.placedTime));
-            despawnBlocksSequentially(blocksToRemove, 0);
+            BlockToDespawn block = batch.get(i);
+            inFlight.remove(block);
+            if (removeBlock(block, false)) {
+                removedLastTick++;
+                LongObjectMap<LongList> chunks = removed.computeIfAbsent(block.world, world -> new LongObjectMap<>());
+                long chunkKey = BlockKey.chunkKeyOf(block.position);
+                LongList positions = chunks.get(chunkKey);
+                if (positions == null) {
+                    positions = new LongList();
+                    chunks.put(chunkKey, positions);
+                }
+                positions.add(block.position);
+            }
         }
+
+        removed.forEach((world, chunks) -> chunks.forEachValue(positions -> updateNeighbors(world, positions)));
     }
 
-    private void despawnBlocksSequentially(List<BlockToDespawn> blocks, int index) {
-        if (index >= blocks.size()) {
-            return;
+    /**
+     * Aktualizuje sąsiadów bloków usuniętych bez fizyki: bloki z grawitacją i ciecze dostają tick,
+     * a bloki, które straciły podparcie, są niszczone. Każdy sąsiad jest aktualizowany raz.
+     */
+    private void updateNeighbors(World world, LongList positions) {
+        Set<Long> removedPositions = new HashSet<>();
+        for (int i = 0; i < positions.size(); i++) {
+            removedPositions.add(positions.get(i));
         }
 
-        BlockToDespawn block = blocks.get(index);
-        long delayTicks = (long) (DESPAWN_DELAY_SECONDS * 20);
+        Set<Long> visited = new HashSet<>();
+        for (int i = 0; i < positions.size(); i++) {
+            long position = positions.get(i);
+            int x = BlockKey.unpackX(position);
+            int y = BlockKey.unpackY(position);
+            int z = BlockKey.unpackZ(position);
+
+            for (BlockFace face : NEIGHBOR_FACES) {
+                int nx = x + face.getModX();
+                int ny = y + face.getModY();
+                int nz = z + face.getModZ();
+                long neighborPosition = BlockKey.pack(nx, ny, nz);
+                if (removedPositions.contains(neighborPosition) || !visited.add(neighborPosition)
+                        || !world.isChunkLoaded(nx >> 4, nz >> 4)) {
+                    continue;
+                }
+
+                Block neighbor = world.getBlockAt(nx, ny, nz);
+                Material type = neighbor.getType();
+                if (type.isAir()) {
+                    continue;
+                }
+                if (neighbor.isLiquid()) {
+                    neighbor.fluidTick();
+                } else if (type.hasGravity()) {
+                    neighbor.tick();
+                } else if (!neighbor.getBlockData().isSupported(neighbor)) {
+                    neighbor.breakNaturally();
+                }
+            }
+        }
+    }
+
+    /**
+     * Usuwa pojedynczy wygasły blok.
+     *
+     * @param applyPhysics false = bez aktualizacji sąsiadów (patrz updateNeighbors)
+     * @return true jeśli blok został usunięty
+     */
+    private boolean removeBlock(BlockToDespawn block, boolean applyPhysics) {
+        String worldName = block.world.getName();
+        int x = BlockKey.unpackX(block.position);
+        int z = BlockKey.unpackZ(block.position);
+
+        // Chunk mógł zostać wyładowany w międzyczasie - nie ładuj go, blok poczeka na załadowanie
+        if (!block.world.isChunkLoaded(x >> 4, z >> 4)) {
+            deferred.add(worldName, block.position);
+            return false;
+        }
+
+        // Blok mógł zostać zniszczony lub postawiony ponownie, zanim przyszła jego kolej
+        PlacedBlockMap shard = config.getPlacedBlockStore().getShard(worldName, block.position);
+        int slot = shard != null ? shard.indexOf(block.position) : -1;
+        if (slot < 0 || shard.placedTimeAt(slot) != block.placedTime) {
+            return false;
+        }
+
+        Block target = block.world.getBlockAt(x, BlockKey.unpackY(block.position), z);
+        if (target.getType() != Material.AIR) {
+            target.setType(Material.AIR, applyPhysics);
+        }
+
+        config.removePlacedBlock(worldName, block.position);
+        return true;
+    }
+
+    /**
+     * Zwraca czas postawienia bloku, jeśli blok nadal jest śledzony i wygasł, w przeciwnym razie -1.
+     */
+    private long getExpiredPlacedTime(PlacedBlockWorld placedBlocks, long position, WorldSchedule schedule, long now) {
+        if (placedBlocks == null) {
+            return -1;
+        }
+
+        // Blok mógł zostać zniszczony lub postawiony ponownie (wtedy ma własny wpis w kolejce)
+        PlacedBlockMap shard = placedBlocks.getShard(position);
+        int slot = shard != null ? shard.indexOf(position) : -1;
+        if (slot < 0 || !PlacedBlockMap.shouldDespawn(shard.flagsAt(slot))) {
+            return -1;
+        }
+        long placedTime = shard.placedTimeAt(slot);
+        long despawnTimeMs = schedule.getDespawnTimeMs(shard.materialAt(slot));
+        return despawnTimeMs > 0 && placedTime + despawnTimeMs <= now ? placedTime : -1;
+    }
+
+    /**
+     * Tworzy kolejkę wygaśnięć świata po starcie lub zmianie czasów znikania i zaczyna jej budowanie.
+     * Jeśli zmieniły się tylko czasy materiałów, stara kolejka zostaje, a ponownie dodawane są
+     * tylko bloki zmienionych materiałów (stare wpisy są sprawdzane przy wygaśnięciu).
+     */
+    private WorldSchedule rebuildSchedule(PlacedBlockWorld placedBlocks, WorldSchedule old, WorldPolicy policy,
+                                          long now) {
+        MaterialPalette palette = config.getPlacedBlockStore().getMaterialPalette();
+        WorldSchedule schedule = new WorldSchedule(policy, palette);
+        if (old != null) {
+            old.cancelBuild();
+        }
+        if (!schedule.isActive()) {
+            return schedule;
+        }
+
+        BitSet changedMaterials = null;
+        if (old != null && old.isActive() && old.build == null
+                && old.policy.getBlockDespawnTimeMs() == policy.getBlockDespawnTimeMs()) {
+            changedMaterials = new BitSet();
+            for (int material = 0; material < palette.size(); material++) {
+                if (old.getDespawnTimeMs(material) != schedule.getDespawnTimeMs(material)) {
+                    changedMaterials.set(material);
+                }
+            }
+            schedule.queue = old.queue;
+            schedule.catchUpTotal = old.catchUpTotal;
+            schedule.catchUpDrained = old.catchUpDrained;
+            if (changedMaterials.isEmpty()) {
+                schedule.catchUpUntil = old.catchUpUntil;
+                return schedule;
+            }
+        }
+        schedule.catchUpUntil = now;
 
-        Bukkit.getScheduler().runTaskLater(plugin, () -> {
-            Location location = new Location(block.world, block.x, block.y, block.z);
+        // Czasy znikania materiałów znanych w chwili zlecenia - bloki postawione później dodaje scheduleBlock
+        long[] despawnTimes = new long[palette.size()];
+        for (int material = 0; material < despawnTimes.length; material++) {
+            despawnTimes[material] = schedule.getDespawnTimeMs(material);
+        }
+        long defaultTime = policy.getBlockDespawnTimeMs();
+        BitSet filter = changedMaterials;
+
+        // Załadowane chunki przegląda wątek główny, resztę wątek I/O
+        long[] loadedChunks = placedBlocks.getLoadedShardKeys();
+        long[] skippedChunks = loadedChunks.clone();
+        Arrays.sort(skippedChunks);
+
+        ScheduleBuild build = new ScheduleBuild(filter, loadedChunks, now);
+        build.stored = config.getPlacedBlockStorage().forEachStoredAsync(placedBlocks.getName(), filter,
+                chunkKey -> build.cancelled || Arrays.binarySearch(skippedChunks, chunkKey) >= 0,
+                (position, placedTime, flags, placer, material) -> {
+                    if (!PlacedBlockMap.shouldDespawn(flags)
+                            || (filter != null && (material < 0 || !filter.get(material)))) {
+                        return;
+                    }
+                    long despawnTimeMs = material < 0 ? defaultTime
+                            : material < despawnTimes.length ? despawnTimes[material] : 0;
+                    build.add(placedTime, despawnTimeMs, position);
+                });
+        schedule.build = build;
+        return schedule;
+    }
 
-            if (location.getBlock().getType() != Material.AIR) {
-                location.getBlock().setType(Material.AIR);
+    /**
+     * Dodaje do budowanej kolejki część bloków załadowanych chunków, a gdy wątek I/O skończy,
+     * dołącza bloki z plików regionów.
+     */
+    private void advanceBuild(PlacedBlockWorld placedBlocks, WorldSchedule schedule) {
+        ScheduleBuild build = schedule.build;
+        int visited = 0;
+        while (visited < SCHEDULE_BLOCKS_PER_TICK && build.nextChunk < build.loadedChunks.length) {
+            // Chunk mógł zostać wyładowany - wtedy shard jest czytany z pliku regionu
+            PlacedBlockMap shard = placedBlocks.getChunkShard(build.loadedChunks[build.nextChunk++]);
+            if (shard == null) {
+                continue;
             }
+            shard.forEach((position, placedTime, flags, placer, material) -> {
+                if (PlacedBlockMap.shouldDespawn(flags)
+                        && (build.materials == null || (material >= 0 && build.materials.get(material)))) {
+                    build.addLoaded(schedule, placedTime, schedule.getDespawnTimeMs(material), position);
+                }
+            });
+            visited += shard.size();
+        }
 
-            config.removePlacedBlockByKey(block.key);
-            despawnBlocksSequentially(blocks, index + 1);
+        if (build.nextChunk < build.loadedChunks.length || !build.stored.isDone()) {
+            return;
+        }
+        schedule.build = null;
+        if (build.stored.isCompletedExceptionally()) {
+            plugin.getLogger().warning("Could not read stored placed blocks of world " + placedBlocks.getName()
+                    + " - blocks in unloaded chunks will not despawn until the next rebuild.");
+        } else if (build.queue.size() > schedule.queue.size()) {
+            // Mniejsza kolejka jest dołączana do większej
+            build.queue.addAll(schedule.queue);
+            schedule.queue = build.queue;
+        } else {
+            schedule.queue.addAll(build.queue);
+        }
 
-        }, delayTicks);
+        // Bloki, które wygasły zanim kolejka powstała, są nadrabiane w ograniczonym tempie
+        schedule.catchUpTotal += build.storedOverdue;
+        int overdue = build.overdue + build.storedOverdue;
+        if (overdue > 0) {
+            plugin.getLogger().info("Block despawn catch-up started in world " + placedBlocks.getName() + ": "
+                    + overdue + " overdue block(s), up to " + getCatchUpBlocksPerSecond() + " per second.");
+        }
     }
 
     public void shutdown() {
         if (despawnTask != null) {
             despawnTask.cancel();
             despawnTask = null;
+            schedules.values().forEach(WorldSchedule::cancelBuild);
+            schedules.clear();
+            removalQueue.clear();
+            inFlight.clear();
+            deferred.clear();
 
             plugin.getLogger().info("Block Despawn Manager has shutdown.");
         }
@@ -137,19 +683,128 @@ public class BlockDespawnManager {
         plugin.getLogger().info("Block Despawn Manager has been reloaded.");
     }
 
+    private static class WorldSchedule {
+        // Ustawienia, z którymi zbudowano kolejkę (czasy znikania się nie zmieniły, jeśli hasSameDespawnTimes)
+        final WorldPolicy policy;
+        final MaterialPalette materials;
+        DespawnQueue queue = new DespawnQueue();
+        // Trwające budowanie kolejki (null = zbudowana)
+        ScheduleBuild build;
+        // Indeks materiału w MaterialPalette -> czas znikania (UNRESOLVED = jeszcze nie wyliczony)
+        long[] despawnTimes = new long[0];
+
+        // Nadrabianie: bloki wygasłe przed catchUpUntil (0 zaległych = brak nadrabiania)
+        long catchUpUntil;
+        int catchUpTotal;
+        int catchUpDrained;
+
+        private static final long UNRESOLVED = Long.MIN_VALUE;
+
+        WorldSchedule(WorldPolicy policy, MaterialPalette materials) {
+            this.policy = policy;
+            this.materials = materials;
+        }
+
+        boolean isActive() {
+            return policy.isBlockDespawnEnabled();
+        }
+
+        void cancelBuild() {
+            if (build != null) {
+                build.cancelled = true;
+            }
+        }
+
+        /**
+         * Czas znikania bloku o danym indeksie materiału (0 lub mniej = blok nie znika).
+         */
+        long getDespawnTimeMs(int material) {
+            if (material < 0) {
+                return policy.getBlockDespawnTimeMs();
+            }
+            if (material >= despawnTimes.length) {
+                int oldLength = despawnTimes.length;
+                despawnTimes = Arrays.copyOf(despawnTimes, Math.max(material + 1, materials.size()));
+                Arrays.fill(despawnTimes, oldLength, despawnTimes.length, UNRESOLVED);
+            }
+            long time = despawnTimes[material];
+            if (time == UNRESOLVED) {
+                String name = materials.get(material);
+                time = policy.getBlockDespawnTimeMs(name != null ? Material.matchMaterial(name) : null);
+                despawnTimes[material] = time;
+            }
+            return time;
+        }
+    }
+
+    /**
+     * Budowanie kolejki wygaśnięć: bloki z plików regionów trafiają do osobnej kolejki w wątku I/O
+     * (widocznej dla wątku głównego po zakończeniu stored), bloki załadowanych chunków od razu do kolejki świata.
+     */
+    private static class ScheduleBuild {
+        // Indeksy przeliczanych materiałów (null = wszystkie bloki)
+        final BitSet materials;
+        final long[] loadedChunks;
+        final long startTime;
+        int nextChunk;
+        // Bloki załadowanych chunków, które już wygasły (od razu liczone do nadrabiania)
+        int overdue;
+
+        CompletableFuture<Void> stored;
+        final DespawnQueue queue = new DespawnQueue();
+        int storedOverdue;
+        volatile boolean cancelled;
+
+        ScheduleBuild(BitSet materials, long[] loadedChunks, long startTime) {
+            this.materials = materials;
+            this.loadedChunks = loadedChunks;
+            this.startTime = startTime;
+        }
+
+        // Wątek I/O
+        void add(long placedTime, long despawnTimeMs, long position) {
+            if (despawnTimeMs > 0) {
+                queue.add(placedTime + despawnTimeMs, position);
+                if (placedTime + despawnTimeMs <= startTime) {
+                    storedOverdue++;
+                }
+            }
+        }
+
+        // Wątek główny
+        void addLoaded(WorldSchedule schedule, long placedTime, long despawnTimeMs, long position) {
+            if (despawnTimeMs > 0) {
+                schedule.queue.add(placedTime + despawnTimeMs, position);
+                if (placedTime + despawnTimeMs <= startTime) {
+                    overdue++;
+                    schedule.catchUpTotal++;
+                }
+            }
+        }
+    }
+
     private static class BlockToDespawn {
-        final String key;
         final World world;
-        final int x, y, z;
+        final long position;
         final long placedTime;
 
-        BlockToDespawn(String key, World world, int x, int y, int z, long placedTime) {
-            this.key = key;
+        BlockToDespawn(World world, long position, long placedTime) {
             this.world = world;
-            this.x = x;
-            this.y = y;
-            this.z = z;
+            this.position = position;
             this.placedTime = placedTime;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof BlockToDespawn)) return false;
+            BlockToDespawn other = (BlockToDespawn) o;
+            return position == other.position && world.equals(other.world);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * world.hashCode() + Long.hashCode(position);
+        }
     }
-}
\ No newline at end of file
+}
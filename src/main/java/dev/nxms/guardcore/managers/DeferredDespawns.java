@@ -0,0 +1,95 @@
+package dev.nxms.guardcore.managers;
+
+import dev.nxms.guardcore.storage.LongList;
+import dev.nxms.guardcore.storage.LongObjectMap;
+import dev.nxms.guardcore.utils.BlockKey;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wygasłe bloki w wyładowanych chunkach, czekające na załadowanie chunka.
+ * Bloki są grupowane per chunk, żeby po załadowaniu chunka usunąć je jedną partią.
+ */
+public class DeferredDespawns {
+
+    // Nazwa świata -> klucz chunka -> pozycje bloków
+    private final Map<String, LongObjectMap<LongList>> worlds = new HashMap<>();
+    private int size;
+
+    public void add(String worldName, long position) {
+        LongObjectMap<LongList> chunks = worlds.computeIfAbsent(worldName, name -> new LongObjectMap<>());
+        long chunkKey = BlockKey.chunkKeyOf(position);
+        LongList positions = chunks.get(chunkKey);
+        if (positions == null) {
+            positions = new LongList(4);
+            chunks.put(chunkKey, positions);
+        }
+        positions.add(position);
+        size++;
+    }
+
+    /**
+     * Zabiera bloki czekające na załadowanie chunka.
+     *
+     * @return Pozycje bloków lub null jeśli chunk nie ma czekających bloków
+     */
+    public LongList take(String worldName, long chunkKey) {
+        LongObjectMap<LongList> chunks = worlds.get(worldName);
+        if (chunks == null) {
+            return null;
+        }
+        LongList positions = chunks.remove(chunkKey);
+        if (positions != null) {
+            size -= positions.size();
+            if (chunks.isEmpty()) {
+                worlds.remove(worldName);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Zwraca klucze chunków świata z czekającymi blokami (kopia - można wywoływać take w trakcie).
+     */
+    public long[] getChunkKeys(String worldName) {
+        LongObjectMap<LongList> chunks = worlds.get(worldName);
+        return chunks != null ? chunks.keys() : new long[0];
+    }
+
+    /**
+     * Zwraca nazwy światów z czekającymi blokami (kopia).
+     */
+    public List<String> getWorldNames() {
+        return new ArrayList<>(worlds.keySet());
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Liczba czekających bloków.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Liczba chunków z czekającymi blokami.
+     */
+    public int getChunkCount() {
+        int count = 0;
+        for (LongObjectMap<LongList> chunks : worlds.values()) {
+            count += chunks.size();
+        }
+        return count;
+    }
+
+    public void clear() {
+        worlds.clear();
+        size = 0;
+    }
+}
@@ -0,0 +1,127 @@
+package dev.nxms.guardcore.managers;
+
+import dev.nxms.guardcore.storage.LongList;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Kolejka bloków do zniknięcia uporządkowana według czasu wygaśnięcia.
+ * Bloki są grupowane w kubełki po sekundzie, a kubełki trzymane w kopcu (TreeMap) według czasu,
+ * więc pobranie wygasłych bloków kosztuje tyle, ile bloków faktycznie wygasło.
+ *
+ * Usunięcia nie są obsługiwane - wpis bloku zniszczonego wcześniej jest odrzucany przy wygaśnięciu.
+ */
+public class DespawnQueue {
+
+    private static final long BUCKET_MS = 1000L;
+
+    // Sekunda wygaśnięcia (zaokrąglona w górę) -> spakowane pozycje bloków
+    private final TreeMap<Long, LongList> buckets = new TreeMap<>();
+    // Ile pozycji z kubełka headBucket zostało już pobranych (pobieranie z limitem)
+    private int headOffset;
+    private long headBucket;
+    private int size;
+
+    /**
+     * Dodaje blok, który ma zniknąć o podanym czasie (ms).
+     */
+    public void add(long expiryTime, long position) {
+        long bucket = Math.floorDiv(expiryTime + BUCKET_MS - 1, BUCKET_MS);
+        if (bucket < headBucket) {
+            compactHead();
+        }
+        buckets.computeIfAbsent(bucket, key -> new LongList()).add(position);
+        size++;
+    }
+
+    /**
+     * Dodaje wszystkie bloki z innej kolejki (np. zbudowanej w tle).
+     */
+    public void addAll(DespawnQueue other) {
+        if (!other.buckets.isEmpty() && other.buckets.firstKey() < headBucket) {
+            compactHead();
+        }
+        int offset = other.headOffset;
+        for (Map.Entry<Long, LongList> entry : other.buckets.entrySet()) {
+            LongList positions = entry.getValue();
+            int count = positions.size() - offset;
+            LongList target = buckets.computeIfAbsent(entry.getKey(), key -> new LongList(count));
+            for (int i = offset; i < positions.size(); i++) {
+                target.add(positions.get(i));
+            }
+            size += count;
+            offset = 0;
+        }
+    }
+
+    /**
+     * Sprawdza czy jakiś blok wygasł przed podanym czasem.
+     */
+    public boolean hasDue(long now) {
+        return !buckets.isEmpty() && buckets.firstKey() * BUCKET_MS <= now;
+    }
+
+    /**
+     * Usuwa z kolejki wszystkie wygasłe bloki (od najstarszych) i przekazuje ich pozycje.
+     */
+    public void pollDue(long now, LongConsumer consumer) {
+        pollDue(now, Integer.MAX_VALUE, consumer);
+    }
+
+    /**
+     * Usuwa z kolejki co najwyżej limit wygasłych bloków (od najstarszych) i przekazuje ich pozycje.
+     *
+     * @return Liczba pobranych bloków
+     */
+    public int pollDue(long now, int limit, LongConsumer consumer) {
+        int polled = 0;
+        while (polled < limit && hasDue(now)) {
+            LongList positions = buckets.firstEntry().getValue();
+            int end = (int) Math.min(positions.size(), (long) headOffset + (limit - polled));
+            for (int i = headOffset; i < end; i++) {
+                consumer.accept(positions.get(i));
+            }
+            polled += end - headOffset;
+            size -= end - headOffset;
+
+            if (end == positions.size()) {
+                buckets.pollFirstEntry();
+                headOffset = 0;
+            } else {
+                headOffset = end;
+                headBucket = buckets.firstKey();
+            }
+        }
+        return polled;
+    }
+
+    /**
+     * Usuwa z częściowo pobranego kubełka już pobrane pozycje, zanim przed nim pojawi się wcześniejszy kubełek
+     * (inaczej headOffset wskazywałby na nowy pierwszy kubełek).
+     */
+    private void compactHead() {
+        if (headOffset > 0) {
+            buckets.get(headBucket).removeFirst(headOffset);
+            headOffset = 0;
+        }
+    }
+
+    /**
+     * Czas wygaśnięcia najbliższego kubełka (ms) lub -1 jeśli kolejka jest pusta.
+     */
+    public long nextExpiryTime() {
+        return buckets.isEmpty() ? -1 : buckets.firstKey() * BUCKET_MS;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        buckets.clear();
+        headOffset = 0;
+        size = 0;
+    }
+}
@@ -2,56 +2,246 @@ package dev.nxms.guardcore.managers;
 
 import dev.nxms.guardcore.GuardCore;
 import dev.nxms.guardcore.config.ConfigManager;
+import dev.nxms.guardcore.config.LimitScope;
+import dev.nxms.guardcore.config.WorldPolicy;
+import dev.nxms.guardcore.listeners.EntityMoveListener;
+import dev.nxms.guardcore.storage.LongObjectMap;
+import dev.nxms.guardcore.utils.BlockKey;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.World;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
+import org.bukkit.event.HandlerList;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  * Zarządza limitami entity na świecie.
  * Sprawdza czy można zespawnować nowe entity na podstawie ustawionych limitów.
+ *
+ * Liczba entity każdego typu (na świecie, w chunku i w regionie) jest utrzymywana na bieżąco
+ * ze zdarzeń dodania i usunięcia entity ze świata, a liczniki chunków i regionów także ze zdarzeń
+ * ruchu i teleportacji, gdy entity zmienia chunk. Sprawdzenie limitu nie przegląda listy entity.
+ * Listener ruchu jest zarejestrowany tylko wtedy, gdy istnieją liczniki chunków i regionów.
+ *
+ * Fale punktów spawnu rezerwują miejsca w limitach świata, chunka i regionu przed spawnem (reserve)
+ * i zwalniają je po zespawnowaniu każdej entity (release), więc inne spawny nie zajmą miejsc fali
+ * rozłożonej na kilka ticków.
  */
 public class EntityLimitManager {
 
+    // Co ile ticków liczniki są porównywane z faktyczną liczbą entity (5 minut) - tylko zabezpieczenie,
+    // np. dla entity bez zdarzenia ruchu (łodzie, wagoniki, przedmioty)
+    private static final long RECONCILE_INTERVAL_TICKS = 5 * 60 * 20L;
+
+    private static final int ENTITY_TYPE_COUNT = EntityType.values().length;
+    // Ostatnie pole tablicy rezerwacji chunka to suma - pusta tablica jest usuwana z mapy
+    private static final int TOTAL = ENTITY_TYPE_COUNT;
+
     private final GuardCore plugin;
     private final ConfigManager config;
 
+    // UID świata -> liczba entity, indeksowana przez EntityType.ordinal()
+    private final Map<UUID, int[]> counts = new HashMap<>();
+    // UID świata -> liczniki chunków i regionów (tylko światy z limitami na chunk lub region)
+    private final Map<UUID, SpatialEntityCounts> spatialCounts = new HashMap<>();
+    // UID świata -> miejsca zarezerwowane przez fale punktów spawnu, indeksowane przez EntityType.ordinal()
+    private final Map<UUID, int[]> reserved = new HashMap<>();
+    // UID świata -> klucz chunka -> miejsca zarezerwowane w chunku, indeksowane przez EntityType.ordinal().
+    // Trwających fal jest niewiele, więc rezerwacje regionu są sumowane z rezerwacji chunków.
+    private final Map<UUID, LongObjectMap<int[]>> reservedChunks = new HashMap<>();
+    private BukkitTask reconcileTask;
+    // Zarejestrowany listener ruchu entity (null = brak świata z limitami na chunk lub region)
+    private EntityMoveListener moveListener;
+
     public EntityLimitManager(GuardCore plugin) {
         this.plugin = plugin;
         this.config = plugin.getConfigManager();
+
+        for (World world : Bukkit.getWorlds()) {
+            seedWorld(world);
+        }
+        reconcileTask = Bukkit.getScheduler().runTaskTimer(plugin, this::reconcile,
+                RECONCILE_INTERVAL_TICKS, RECONCILE_INTERVAL_TICKS);
     }
 
     /**
-     * Sprawdza czy można zespawnować entity danego typu na świecie.
+     * Sprawdza czy można zespawnować entity danego typu na świecie (tylko limit świata).
      *
      * @param world Świat
      * @param entityType Typ entity
      * @return true jeśli można zespawnować, false jeśli limit został osiągnięty
      */
     public boolean canSpawnEntity(World world, EntityType entityType) {
-        String worldName = world.getName();
-        String entityName = entityType.name();
-
-        int limit = config.getEntityLimit(worldName, entityName);
+        int limit = config.getPolicy(world).getEntityLimit(entityType);
 
         // Jeśli nie ma limitu (-1), pozwól na spawn
         if (limit == -1) {
             return true;
         }
 
-        // Policz aktualne entity tego typu na świecie
-        long currentCount = world.getEntities().stream()
-                .filter(e -> e.getType() == entityType)
-                .count();
+        return getEntityCount(world, entityType) + getReservedCount(world, entityType) < limit;
+    }
+
+    /**
+     * Sprawdza czy można zespawnować entity danego typu w podanym miejscu
+     * (limit świata, chunka i regionu).
+     *
+     * @return true jeśli można zespawnować, false jeśli któryś limit został osiągnięty
+     */
+    public boolean canSpawnEntity(Location location, EntityType entityType) {
+        World world = location.getWorld();
+        if (!canSpawnEntity(world, entityType)) {
+            return false;
+        }
+
+        WorldPolicy policy = config.getPolicy(world);
+        if (!policy.isSpatiallyLimited(entityType)) {
+            return true;
+        }
+
+        SpatialEntityCounts spatial = getSpatialCounts(world, policy);
+        long chunkKey = chunkKeyOf(location);
+
+        int chunkLimit = policy.getEntityLimit(LimitScope.CHUNK, entityType);
+        if (chunkLimit != -1 && spatial.getChunkCount(chunkKey, entityType)
+                + getReservedChunkCount(world, chunkKey, entityType) >= chunkLimit) {
+            return false;
+        }
+
+        int regionLimit = policy.getEntityLimit(LimitScope.REGION, entityType);
+        return regionLimit == -1 || spatial.getRegionCount(chunkKey, entityType)
+                + getReservedRegionCount(world, policy, chunkKey, entityType) < regionLimit;
+    }
+
+    /**
+     * Rezerwuje miejsca w limitach dla fali entity spawnowanej w jednym miejscu.
+     * Wielkość fali ograniczają limity świata, chunka i regionu; zarezerwowane miejsca
+     * są zajęte dla innych spawnów do czasu zwolnienia przez release z tym samym miejscem.
+     *
+     * @return Liczba zarezerwowanych miejsc (od 0 do requested)
+     */
+    public int reserve(Location location, EntityType entityType, int requested) {
+        World world = location.getWorld();
+        WorldPolicy policy = config.getPolicy(world);
+        int granted = requested;
+
+        int limit = policy.getEntityLimit(entityType);
+        if (limit != -1) {
+            granted = Math.min(granted,
+                    limit - getEntityCount(world, entityType) - getReservedCount(world, entityType));
+        }
+
+        long chunkKey = chunkKeyOf(location);
+        if (granted > 0 && policy.isSpatiallyLimited(entityType)) {
+            SpatialEntityCounts spatial = getSpatialCounts(world, policy);
+
+            int chunkLimit = policy.getEntityLimit(LimitScope.CHUNK, entityType);
+            if (chunkLimit != -1) {
+                granted = Math.min(granted, chunkLimit - spatial.getChunkCount(chunkKey, entityType)
+                        - getReservedChunkCount(world, chunkKey, entityType));
+            }
+            int regionLimit = policy.getEntityLimit(LimitScope.REGION, entityType);
+            if (regionLimit != -1) {
+                granted = Math.min(granted, regionLimit - spatial.getRegionCount(chunkKey, entityType)
+                        - getReservedRegionCount(world, policy, chunkKey, entityType));
+            }
+        }
 
-        return currentCount < limit;
+        if (granted <= 0) {
+            return 0;
+        }
+        reserved.computeIfAbsent(world.getUID(), uid -> new int[ENTITY_TYPE_COUNT])[entityType.ordinal()] += granted;
+
+        // Rezerwacja chunka jest zapisywana zawsze - limity na chunk lub region mogą zostać dodane w trakcie fali
+        LongObjectMap<int[]> chunks = reservedChunks.computeIfAbsent(world.getUID(), uid -> new LongObjectMap<>());
+        int[] chunkReserved = chunks.get(chunkKey);
+        if (chunkReserved == null) {
+            chunkReserved = new int[ENTITY_TYPE_COUNT + 1];
+            chunks.put(chunkKey, chunkReserved);
+        }
+        chunkReserved[entityType.ordinal()] += granted;
+        chunkReserved[TOTAL] += granted;
+        return granted;
+    }
+
+    /**
+     * Zwalnia miejsca zarezerwowane przez reserve w tym samym miejscu (po spawnie entity lub anulowaniu fali).
+     */
+    public void release(Location location, EntityType entityType, int amount) {
+        World world = location.getWorld();
+        int[] worldReserved = reserved.get(world.getUID());
+        if (worldReserved != null) {
+            worldReserved[entityType.ordinal()] = Math.max(0, worldReserved[entityType.ordinal()] - amount);
+        }
+
+        LongObjectMap<int[]> chunks = reservedChunks.get(world.getUID());
+        if (chunks == null) {
+            return;
+        }
+        long chunkKey = chunkKeyOf(location);
+        int[] chunkReserved = chunks.get(chunkKey);
+        if (chunkReserved == null) {
+            return;
+        }
+        int released = Math.min(amount, chunkReserved[entityType.ordinal()]);
+        chunkReserved[entityType.ordinal()] -= released;
+        chunkReserved[TOTAL] -= released;
+        if (chunkReserved[TOTAL] == 0) {
+            chunks.remove(chunkKey);
+            if (chunks.isEmpty()) {
+                reservedChunks.remove(world.getUID());
+            }
+        }
+    }
+
+    private int getReservedCount(World world, EntityType entityType) {
+        int[] worldReserved = reserved.get(world.getUID());
+        return worldReserved != null ? worldReserved[entityType.ordinal()] : 0;
+    }
+
+    private int getReservedChunkCount(World world, long chunkKey, EntityType entityType) {
+        LongObjectMap<int[]> chunks = reservedChunks.get(world.getUID());
+        int[] chunkReserved = chunks != null ? chunks.get(chunkKey) : null;
+        return chunkReserved != null ? chunkReserved[entityType.ordinal()] : 0;
+    }
+
+    /**
+     * Suma rezerwacji chunków leżących w tym samym regionie (według aktualnego rozmiaru regionu).
+     */
+    private int getReservedRegionCount(World world, WorldPolicy policy, long chunkKey, EntityType entityType) {
+        LongObjectMap<int[]> chunks = reservedChunks.get(world.getUID());
+        if (chunks == null) {
+            return 0;
+        }
+        int regionSize = policy.getRegionSize();
+        int regionX = Math.floorDiv(BlockKey.chunkX(chunkKey), regionSize);
+        int regionZ = Math.floorDiv(BlockKey.chunkZ(chunkKey), regionSize);
+        int[] total = new int[1];
+        chunks.forEach((key, chunkReserved) -> {
+            if (Math.floorDiv(BlockKey.chunkX(key), regionSize) == regionX
+                    && Math.floorDiv(BlockKey.chunkZ(key), regionSize) == regionZ) {
+                total[0] += chunkReserved[entityType.ordinal()];
+            }
+        });
+        return total[0];
+    }
+
+    private static long chunkKeyOf(Location location) {
+        return BlockKey.chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
     }
 
     /**
      * Zwraca aktualną liczbę entity danego typu na świecie.
      */
     public int getEntityCount(World world, EntityType entityType) {
-        return (int) world.getEntities().stream()
-                .filter(e -> e.getType() == entityType)
-                .count();
+        int[] worldCounts = counts.get(world.getUID());
+        return worldCounts != null ? worldCounts[entityType.ordinal()] : 0;
     }
 
     /**
@@ -62,4 +252,152 @@ public class EntityLimitManager {
     public int getLimit(String worldName, String entityType) {
         return config.getEntityLimit(worldName, entityType);
     }
-}
\ No newline at end of file
+
+    // ===== LICZNIKI =====
+
+    /**
+     * Wywoływane gdy entity zostaje dodane do świata (spawn lub załadowanie chunka).
+     */
+    public void onEntityAdd(Entity entity) {
+        World world = entity.getWorld();
+        counts.computeIfAbsent(world.getUID(), uid -> new int[ENTITY_TYPE_COUNT])
+                [entity.getType().ordinal()]++;
+
+        SpatialEntityCounts spatial = getSpatialCounts(world, config.getPolicy(world));
+        if (spatial != null) {
+            spatial.add(entity);
+        }
+    }
+
+    /**
+     * Wywoływane gdy entity zostaje usunięte ze świata (śmierć, despawn lub wyładowanie chunka).
+     */
+    public void onEntityRemove(Entity entity) {
+        int[] worldCounts = counts.get(entity.getWorld().getUID());
+        if (worldCounts != null && worldCounts[entity.getType().ordinal()] > 0) {
+            worldCounts[entity.getType().ordinal()]--;
+        }
+
+        SpatialEntityCounts spatial = spatialCounts.get(entity.getWorld().getUID());
+        if (spatial != null) {
+            spatial.remove(entity);
+        }
+    }
+
+    /**
+     * Wywoływane gdy entity przemieszcza się lub teleportuje w obrębie świata.
+     * Liczniki chunków i regionów są zmieniane tylko przy zmianie chunka.
+     */
+    public void onEntityMove(Entity entity, Location from, Location to) {
+        if (from.getBlockX() >> 4 == to.getBlockX() >> 4 && from.getBlockZ() >> 4 == to.getBlockZ() >> 4) {
+            return;
+        }
+        SpatialEntityCounts spatial = spatialCounts.get(entity.getWorld().getUID());
+        if (spatial != null) {
+            spatial.move(entity, to);
+        }
+    }
+
+    /**
+     * Liczy entity świata od nowa (przy załadowaniu świata).
+     */
+    public void seedWorld(World world) {
+        counts.put(world.getUID(), countEntities(world));
+        spatialCounts.remove(world.getUID());
+        updateMoveListener();
+    }
+
+    public void unloadWorld(World world) {
+        counts.remove(world.getUID());
+        spatialCounts.remove(world.getUID());
+        reserved.remove(world.getUID());
+        reservedChunks.remove(world.getUID());
+        updateMoveListener();
+    }
+
+    public void shutdown() {
+        if (reconcileTask != null) {
+            reconcileTask.cancel();
+            reconcileTask = null;
+        }
+        counts.clear();
+        spatialCounts.clear();
+        reserved.clear();
+        reservedChunks.clear();
+        updateMoveListener();
+    }
+
+    /**
+     * Zwraca liczniki chunków i regionów zgodne z aktualnymi ustawieniami świata.
+     * Po zmianie ustawień, która zmienia liczone typy entity, liczniki są budowane od nowa.
+     *
+     * @return Liczniki lub null jeśli świat nie ma limitów na chunk ani region
+     */
+    private SpatialEntityCounts getSpatialCounts(World world, WorldPolicy policy) {
+        SpatialEntityCounts spatial = spatialCounts.get(world.getUID());
+        if (spatial != null && spatial.getPolicy() == policy) {
+            return spatial;
+        }
+
+        if (!policy.hasSpatialLimits()) {
+            if (spatialCounts.remove(world.getUID()) != null) {
+                updateMoveListener();
+            }
+            return null;
+        }
+
+        if (spatial != null && spatial.getPolicy().hasSameSpatialTracking(policy)) {
+            spatial.setPolicy(policy);
+            return spatial;
+        }
+
+        spatial = SpatialEntityCounts.count(world, policy);
+        spatialCounts.put(world.getUID(), spatial);
+        updateMoveListener();
+        return spatial;
+    }
+
+    /**
+     * Rejestruje listener ruchu entity, gdy któryś świat ma liczniki chunków i regionów,
+     * i wyrejestrowuje go, gdy żaden ich nie ma.
+     */
+    private void updateMoveListener() {
+        if (!spatialCounts.isEmpty() && moveListener == null) {
+            moveListener = new EntityMoveListener(this);
+            plugin.getServer().getPluginManager().registerEvents(moveListener, plugin);
+        } else if (spatialCounts.isEmpty() && moveListener != null) {
+            HandlerList.unregisterAll(moveListener);
+            moveListener = null;
+        }
+    }
+
+    /**
+     * Zabezpieczenie: liczy od nowa liczniki chunków i regionów oraz porównuje liczniki światów
+     * z faktyczną liczbą entity i poprawia rozbieżności (np. entity usunięte lub przeniesione bez zdarzenia).
+     */
+    private void reconcile() {
+        for (World world : Bukkit.getWorlds()) {
+            WorldPolicy policy = config.getPolicy(world);
+            if (policy.hasSpatialLimits()) {
+                spatialCounts.put(world.getUID(), SpatialEntityCounts.count(world, policy));
+            } else {
+                spatialCounts.remove(world.getUID());
+            }
+
+            int[] actual = countEntities(world);
+            int[] tracked = counts.put(world.getUID(), actual);
+            if (tracked != null && !Arrays.equals(tracked, actual)) {
+                plugin.getLogger().fine("Corrected entity counters drift in world " + world.getName() + ".");
+            }
+        }
+        updateMoveListener();
+    }
+
+    private static int[] countEntities(World world) {
+        int[] worldCounts = new int[ENTITY_TYPE_COUNT];
+        for (Entity entity : world.getEntities()) {
+            worldCounts[entity.getType().ordinal()]++;
+        }
+        return worldCounts;
+    }
+}
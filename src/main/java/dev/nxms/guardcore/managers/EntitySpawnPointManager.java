@@ -2,150 +2,670 @@ package dev.nxms.guardcore.managers;
 
 import dev.nxms.guardcore.GuardCore;
 import dev.nxms.guardcore.config.ConfigManager;
+import dev.nxms.guardcore.config.SpawnPoint;
+import dev.nxms.guardcore.storage.LongObjectMap;
+import dev.nxms.guardcore.utils.BlockKey;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
 import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.event.entity.CreatureSpawnEvent;
+import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.scheduler.BukkitTask;
-import org.bukkit.scheduler.BukkitRunnable;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 
+/**
+ * Spawnuje encje w punktach spawnu co ustawiony interwał.
+ *
+ * Wszystkie punkty obsługuje jeden timer. Punkty są kompilowane razem z ustawieniami świata
+ * (SpawnPoint w WorldPolicy) z rozwiązanym typem encji i współrzędnymi, a kopiec
+ * uporządkowany według ticku następnego spawnu zwraca co tick tylko punkty, których czas minął.
+ *
+ * Punkt spawnuje tylko gdy jest aktywny: jego chunk jest załadowany, a w promieniu
+ * spawnPoints.activationRadius jest gracz. Aktywność jest wyznaczana raz na sekundę -
+ * dla każdego gracza sprawdzane są tylko chunki w promieniu aktywacji w indeksie punktów per chunk.
+ * Nowy punkt jest sprawdzany od razu. Punkt nieaktywny w chwili spawnu nie traci interwału -
+ * spawn jest przesuwany na najbliższe wyznaczenie aktywności.
+ *
+ * Encje zespawnowane przez punkt są oznaczane jego kluczem w PersistentDataContainer.
+ * Licznik żywych encji punktu jest aktualizowany w zdarzeniach dodania/usunięcia encji
+ * ze świata, więc punkt z osiągniętym maxAlive pomija spawn bez przeszukiwania encji.
+ *
+ * Reload porównuje skompilowane punkty z konfiguracją i zmienia tylko punkty dodane,
+ * usunięte i zmienione. Niezmienione punkty zachowują tick następnego spawnu.
+ *
+ * Przy wyłączeniu serwera czas do następnego spawnu każdego punktu jest zapisywany
+ * w jego danych (nextSpawn), a przy starcie odtwarzany i usuwany. Punkty bez zapisanego stanu dostają
+ * stałą fazę wyliczoną z nazwy, więc punkty z tym samym interwałem nie spawnują w tym samym ticku.
+ *
+ * Punkt spawnuje falę count encji. Zasady świata (zakazane encje, godziny spawnu) są sprawdzane
+ * raz na falę, a miejsca w limitach encji są rezerwowane dla całej fali naraz. Fale są spawnowane
+ * w kolejnych tickach, najwyżej spawnPoints.maxSpawnsPerTick encji na tick dla wszystkich punktów.
+ *
+ * Każdy punkt ma kilka sprawdzonych bezpiecznych pozycji (wolne miejsce na nogi i głowę, bez lawy)
+ * w swoim chunku, liczonych przy pierwszym spawnie. Zmiana bloku w chunku lub załadowanie chunka
+ * unieważnia pozycje punktów tego chunka, więc spawn bierze gotową pozycję i nigdy nie spawnuje w bloku.
+ */
 public class EntitySpawnPointManager {
 
     private final GuardCore plugin;
     private final ConfigManager config;
+    private final TaskGovernor governor;
+    private BukkitTask spawnTask;
+    // Klucz PDC z kluczem punktu, który zespawnował encję
+    private final NamespacedKey ownerKey;
 
+    // Punkty uporządkowane według ticku następnego spawnu
+    private final PriorityQueue<ScheduledSpawnPoint> schedule =
+            new PriorityQueue<>((a, b) -> Long.compare(a.nextTick, b.nextTick));
     // Klucz: "worldName:pointName"
-    private final Map<String, BukkitTask> spawnTasks;
+    private final Map<String, ScheduledSpawnPoint> points = new HashMap<>();
+    // Nazwa świata -> klucz chunka -> punkty w tym chunku
+    private final Map<String, LongObjectMap<List<ScheduledSpawnPoint>>> chunkIndex = new HashMap<>();
+    // Fale czekające na zespawnowanie, w kolejności rozpoczęcia
+    private final ArrayDeque<ScheduledSpawnPoint> waves = new ArrayDeque<>();
+
+    // Co ile ticków wyznaczać aktywne punkty
+    private static final long ACTIVATION_INTERVAL_TICKS = 20L;
+    // Maksymalna liczba bezpiecznych pozycji punktu
+    private static final int MAX_SAFE_LOCATIONS = 4;
+    // Kandydaci na bezpieczne pozycje względem bloku punktu: sam punkt, blok wyżej, sąsiednie bloki
+    private static final int[][] SAFE_OFFSETS = {
+            {0, 0, 0}, {0, 1, 0}, {1, 0, 0}, {-1, 0, 0}, {0, 0, 1}, {0, 0, -1},
+            {1, 1, 0}, {-1, 1, 0}, {0, 1, 1}, {0, 1, -1}
+    };
+    private static final Location[] NO_SAFE_LOCATIONS = new Location[0];
+
+    // Licznik ticków od startu timera
+    private long currentTick;
+    // Numer bieżącego wyznaczenia aktywnych punktów
+    private long activationGeneration;
+    // Promień aktywacji w blokach (0 = punkty aktywne bez względu na graczy)
+    private int activationRadius;
+    // Maksymalna liczba encji spawnowanych przez wszystkie punkty w jednym ticku
+    private int maxSpawnsPerTick;
 
     public EntitySpawnPointManager(GuardCore plugin) {
         this.plugin = plugin;
         this.config = plugin.getConfigManager();
-        this.spawnTasks = new HashMap<>();
+        this.governor = plugin.getTaskGovernor();
+        this.ownerKey = new NamespacedKey(plugin, "spawn_point");
         startAllSpawnTasks();
     }
 
     private void startAllSpawnTasks() {
+        activationRadius = config.getSpawnPointsActivationRadius();
+        maxSpawnsPerTick = config.getSpawnPointsMaxSpawnsPerTick();
+        applySpawnPoints();
+        updateActivePoints();
+        spawnTask = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        plugin.getLogger().info("Scheduled " + points.size() + " entity spawn point(s).");
+    }
+
+    /**
+     * Dopasowuje zaplanowane punkty do konfiguracji: planuje nowe, usuwa skasowane
+     * i kompiluje od nowa tylko zmienione punkty. Nowe punkty liczą swoje żywe encje,
+     * zmienione przejmują licznik poprzedniej wersji.
+     *
+     * @return Liczba punktów dodanych, zmienionych i usuniętych
+     */
+    private int applySpawnPoints() {
+        int changes = 0;
+        Set<String> configured = new HashSet<>();
+        Map<String, ScheduledSpawnPoint> added = new HashMap<>();
+
         for (World world : Bukkit.getWorlds()) {
-            String worldName = world.getName();
-            Map<String, Map<String, Object>> spawnPoints = config.getAllEntitySpawnPoints(worldName);
+            for (SpawnPoint spawnPoint : config.getPolicy(world).getSpawnPoints().values()) {
+                String taskKey = world.getName() + ":" + spawnPoint.getName();
+                configured.add(taskKey);
 
-            for (String pointName : spawnPoints.keySet()) {
-                Map<String, Object> pointData = spawnPoints.get(pointName);
-                long intervalTicks = (Long) pointData.get("interval");
-                startSpawnTask(worldName, pointName, intervalTicks);
+                ScheduledSpawnPoint old = points.get(taskKey);
+                if (old == null || !old.spawnPoint.hasSameSettings(spawnPoint)) {
+                    ScheduledSpawnPoint point = new ScheduledSpawnPoint(spawnPoint);
+                    schedulePoint(point);
+                    if (old == null) {
+                        added.put(taskKey, point);
+                    }
+                    changes++;
+                }
             }
         }
 
-        plugin.getLogger().info("Started " + spawnTasks.size() + " entity spawn point tasks.");
+        for (String taskKey : new ArrayList<>(points.keySet())) {
+            if (!configured.contains(taskKey)) {
+                unschedulePoint(taskKey);
+                changes++;
+            }
+        }
+        countAliveEntities(added);
+        return changes;
+    }
+
+    /**
+     * Planuje skompilowany punkt w miejsce poprzedniej wersji (jeśli była).
+     * Poprzednia wersja przekazuje licznik żywych encji i tick następnego spawnu
+     * (najpóźniej za jeden nowy interwał), więc zmiana punktu nie przesuwa jego fazy.
+     */
+    private void schedulePoint(ScheduledSpawnPoint point) {
+        ScheduledSpawnPoint old = points.get(point.key);
+        if (old != null) {
+            point.nextTick = Math.min(old.nextTick, currentTick + point.spawnPoint.getIntervalTicks());
+            point.alive = old.alive;
+            point.activeGeneration = old.activeGeneration;
+            unschedulePoint(point.key);
+        } else {
+            point.nextTick = currentTick + getInitialDelay(point);
+            updateActivePoint(point);
+        }
+        points.put(point.key, point);
+        schedule.add(point);
+
+        long chunkKey = BlockKey.chunkKey(point.chunkX, point.chunkZ);
+        LongObjectMap<List<ScheduledSpawnPoint>> chunks =
+                chunkIndex.computeIfAbsent(point.spawnPoint.getWorldName(), name -> new LongObjectMap<>());
+        List<ScheduledSpawnPoint> inChunk = chunks.get(chunkKey);
+        if (inChunk == null) {
+            inChunk = new ArrayList<>(1);
+            chunks.put(chunkKey, inChunk);
+        }
+        inChunk.add(point);
+    }
+
+    /**
+     * Liczba ticków do pierwszego spawnu nowo zaplanowanego punktu: zapisany stan (usuwany
+     * z danych punktu, więc ponowne zaplanowanie go nie użyje) lub najbliższy tick zgodny ze stałą fazą punktu.
+     */
+    private long getInitialDelay(ScheduledSpawnPoint point) {
+        long intervalTicks = point.spawnPoint.getIntervalTicks();
+        long restoredDelay = config.takeEntitySpawnPointNextSpawn(point.spawnPoint.getWorldName(),
+                point.spawnPoint.getName());
+        if (restoredDelay > 0) {
+            return Math.min(restoredDelay, intervalTicks);
+        }
+        long phase = Math.floorMod(mix(point.key.hashCode()), intervalTicks);
+        return Math.floorMod(phase - currentTick - 1, intervalTicks) + 1;
+    }
+
+    // Rozrzuca bity skrótu nazwy, żeby podobne nazwy (spawn1, spawn2) miały odległe fazy
+    private static long mix(int hash) {
+        long h = hash * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
     }
 
-    private void startSpawnTask(String worldName, String pointName, long intervalTicks) {
-        String taskKey = worldName + ":" + pointName;
+    /**
+     * Zapisuje w danych punktów czas pozostały do ich następnego spawnu.
+     */
+    private void saveSchedule() {
+        for (ScheduledSpawnPoint point : points.values()) {
+            config.setEntitySpawnPointNextSpawn(point.spawnPoint.getWorldName(), point.spawnPoint.getName(),
+                    Math.max(1, point.nextTick - currentTick));
+        }
+    }
 
-        // anuluj istniejący
-        BukkitTask old = spawnTasks.remove(taskKey);
-        if (old != null) old.cancel();
+    private void unschedulePoint(String taskKey) {
+        ScheduledSpawnPoint old = points.remove(taskKey);
+        if (old == null) {
+            return;
+        }
+        schedule.remove(old);
+        // Fala usuniętego punktu zostanie pominięta w kolejce fal
+        cancelWave(old);
+
+        String worldName = old.spawnPoint.getWorldName();
+        LongObjectMap<List<ScheduledSpawnPoint>> chunks = chunkIndex.get(worldName);
+        if (chunks == null) {
+            return;
+        }
+        long chunkKey = BlockKey.chunkKey(old.chunkX, old.chunkZ);
+        List<ScheduledSpawnPoint> inChunk = chunks.get(chunkKey);
+        if (inChunk != null && inChunk.remove(old) && inChunk.isEmpty()) {
+            chunks.remove(chunkKey);
+            if (chunks.isEmpty()) {
+                chunkIndex.remove(worldName);
+            }
+        }
+    }
+
+    /**
+     * Oznacza punkty z graczem w promieniu aktywacji bieżącym numerem wyznaczenia.
+     */
+    private void updateActivePoints() {
+        activationGeneration++;
+        if (activationRadius <= 0) {
+            return;
+        }
 
-        BukkitRunnable runnable = new BukkitRunnable() {
-            @Override
-            public void run() {
-                // Pobierz aktualne dane punktu (jeśli usunięty -> stop)
-                Map<String, Object> pointData = config.getEntitySpawnPoint(worldName, pointName);
-                if (pointData == null) {
-                    this.cancel();
-                    spawnTasks.remove(taskKey);
-                    return;
+        long radiusSquared = (long) activationRadius * activationRadius;
+        int chunkRadius = (activationRadius + 15) >> 4;
+
+        for (Map.Entry<String, LongObjectMap<List<ScheduledSpawnPoint>>> entry : chunkIndex.entrySet()) {
+            World world = Bukkit.getWorld(entry.getKey());
+            if (world == null) continue;
+            LongObjectMap<List<ScheduledSpawnPoint>> chunks = entry.getValue();
+
+            for (Player player : world.getPlayers()) {
+                Location location = player.getLocation();
+                int playerChunkX = location.getBlockX() >> 4;
+                int playerChunkZ = location.getBlockZ() >> 4;
+
+                for (int dx = -chunkRadius; dx <= chunkRadius; dx++) {
+                    for (int dz = -chunkRadius; dz <= chunkRadius; dz++) {
+                        List<ScheduledSpawnPoint> inChunk =
+                                chunks.get(BlockKey.chunkKey(playerChunkX + dx, playerChunkZ + dz));
+                        if (inChunk == null) continue;
+
+                        for (ScheduledSpawnPoint point : inChunk) {
+                            double ox = point.spawnPoint.getX() - location.getX();
+                            double oy = point.spawnPoint.getY() - location.getY();
+                            double oz = point.spawnPoint.getZ() - location.getZ();
+                            if (ox * ox + oy * oy + oz * oz <= radiusSquared) {
+                                point.activeGeneration = activationGeneration;
+                            }
+                        }
+                    }
                 }
+            }
+        }
+    }
 
-                spawnEntityAtPoint(worldName, pointData);
+    /**
+     * Wyznacza aktywność jednego punktu (nowy punkt nie czeka na kolejne wyznaczenie).
+     */
+    private void updateActivePoint(ScheduledSpawnPoint point) {
+        if (activationRadius <= 0) {
+            return;
+        }
+        World world = point.spawnPoint.getWorld();
+        long radiusSquared = (long) activationRadius * activationRadius;
+        for (Player player : world.getPlayers()) {
+            Location location = player.getLocation();
+            double ox = point.spawnPoint.getX() - location.getX();
+            double oy = point.spawnPoint.getY() - location.getY();
+            double oz = point.spawnPoint.getZ() - location.getZ();
+            if (ox * ox + oy * oy + oz * oz <= radiusSquared) {
+                point.activeGeneration = activationGeneration;
+                return;
             }
-        };
+        }
+    }
 
-        BukkitTask task = runnable.runTaskTimer(plugin, intervalTicks, intervalTicks);
-        spawnTasks.put(taskKey, task);
+    private boolean isActive(ScheduledSpawnPoint point, World world) {
+        if (activationRadius > 0 && point.activeGeneration != activationGeneration) {
+            return false;
+        }
+        // Punkt nigdy nie wymusza ładowania chunka
+        return world.isChunkLoaded(point.chunkX, point.chunkZ);
     }
 
-    private void spawnEntityAtPoint(String worldName, Map<String, Object> pointData) {
-        World world = Bukkit.getWorld(worldName);
-        if (world == null) return;
+    private void tick() {
+        currentTick++;
+        if (currentTick % ACTIVATION_INTERVAL_TICKS == 0) {
+            updateActivePoints();
+        }
 
-        String entityName = (String) pointData.get("entity");
-        double x = (Double) pointData.get("x");
-        double y = (Double) pointData.get("y");
-        double z = (Double) pointData.get("z");
+        ScheduledSpawnPoint point;
+        while ((point = schedule.peek()) != null && point.nextTick <= currentTick) {
+            schedule.poll();
+            SpawnPoint spawnPoint = point.spawnPoint;
+            if (isActive(point, spawnPoint.getWorld())) {
+                point.nextTick = currentTick + spawnPoint.getIntervalTicks();
+                startWave(point);
+            } else {
+                // Spawn czeka na najbliższe wyznaczenie aktywności zamiast przepadać na cały interwał
+                point.nextTick = (currentTick / ACTIVATION_INTERVAL_TICKS + 1) * ACTIVATION_INTERVAL_TICKS;
+            }
+            schedule.add(point);
+        }
 
-        try {
-            EntityType entityType = EntityType.valueOf(entityName);
-            Location location = new Location(world, x, y, z);
+        spawnWaves();
+    }
 
-            if (canSpawnEntity(worldName, entityType)) {
-                world.spawnEntity(location, entityType);
+    /**
+     * Sprawdza zasady świata raz dla całej fali i rezerwuje dla niej miejsca w limitach encji.
+     * Punkt, którego poprzednia fala jeszcze się spawnuje, nie zaczyna nowej.
+     */
+    private void startWave(ScheduledSpawnPoint point) {
+        if (point.pending > 0) return;
+
+        SpawnPoint spawnPoint = point.spawnPoint;
+        int count = spawnPoint.getCount();
+        if (spawnPoint.getMaxAlive() > 0) {
+            count = Math.min(count, spawnPoint.getMaxAlive() - point.alive);
+        }
+        if (count <= 0) return;
+        if (getSafeLocations(point).length == 0) return;
+
+        World world = spawnPoint.getWorld();
+        EntityType entityType = spawnPoint.getEntityType();
+        if (config.getPolicy(world).isEntityDisallowed(entityType)) return;
+        if (!plugin.getEntitySpawnTimeManager().canSpawnAtCurrentTime(world, entityType)) return;
+
+        int reserved = plugin.getEntityLimitManager().reserve(point.location, entityType, count);
+        if (reserved <= 0) return;
+
+        point.pending = reserved;
+        waves.add(point);
+    }
+
+    /**
+     * Spawnuje encje z kolejki fal w ramach limitu encji na tick i budżetu czasu od TaskGovernor.
+     * Pozostała część fali czeka na kolejny tick.
+     */
+    private void spawnWaves() {
+        int spawned = 0;
+        while (spawned < maxSpawnsPerTick && !waves.isEmpty()) {
+            ScheduledSpawnPoint point = waves.peek();
+            if (point.pending <= 0) {
+                waves.poll();
+                continue;
+            }
+
+            // Punkt nigdy nie wymusza ładowania chunka - fala w wyładowanym chunku jest anulowana
+            SpawnPoint spawnPoint = point.spawnPoint;
+            if (!spawnPoint.getWorld().isChunkLoaded(point.chunkX, point.chunkZ)) {
+                cancelWave(point);
+                waves.poll();
+                continue;
+            }
+
+            // Przy obciążonym serwerze reszta fal czeka na kolejny tick
+            if (!governor.tryAcquire(TaskGovernor.Subsystem.SPAWN_POINTS)) {
+                return;
+            }
+            Location location = nextSafeLocation(point);
+            if (location == null) {
+                cancelWave(point);
+                waves.poll();
+                continue;
+            }
+            long start = System.nanoTime();
+            spawnOwnedEntity(spawnPoint.getWorld(), location, point);
+            plugin.getEntityLimitManager().release(point.location, spawnPoint.getEntityType(), 1);
+            governor.record(TaskGovernor.Subsystem.SPAWN_POINTS, System.nanoTime() - start);
+
+            spawned++;
+            if (--point.pending == 0) {
+                waves.poll();
             }
-        } catch (IllegalArgumentException e) {
-            plugin.getLogger().warning("Invalid entity type in spawn point: " + entityName);
         }
     }
 
-    private boolean canSpawnEntity(String worldName, EntityType entityType) {
-        if (config.isEntityDisallowed(worldName, entityType.name())) return false;
-        if (!plugin.getEntityLimitManager().canSpawnEntity(Bukkit.getWorld(worldName), entityType)) return false;
-        if (!plugin.getEntitySpawnTimeManager().canSpawnAtCurrentTime(worldName, entityType)) return false;
-        return true;
+    /**
+     * Bezpieczne pozycje punktu - liczone przy pierwszym użyciu i po unieważnieniu.
+     */
+    private Location[] getSafeLocations(ScheduledSpawnPoint point) {
+        if (point.safeLocations == null) {
+            point.safeLocations = findSafeLocations(point);
+            point.nextSafe = 0;
+        }
+        return point.safeLocations;
     }
 
-    public void forceSpawn(String worldName, String spawnPointName) {
-        Map<String, Object> pointData = config.getEntitySpawnPoint(worldName, spawnPointName);
-        if (pointData == null) return;
+    /**
+     * Kolejna bezpieczna pozycja punktu (fala rozkłada się po wszystkich pozycjach).
+     *
+     * @return Pozycja lub null jeśli punkt nie ma bezpiecznej pozycji
+     */
+    private Location nextSafeLocation(ScheduledSpawnPoint point) {
+        Location[] locations = getSafeLocations(point);
+        if (locations.length == 0) {
+            return null;
+        }
+        Location location = locations[point.nextSafe % locations.length];
+        point.nextSafe++;
+        // Zmiany bez eventów (np. edytory świata) - pozycja już zajęta, liczymy pozycje od nowa
+        if (!isSafePosition(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ())) {
+            point.safeLocations = null;
+            locations = getSafeLocations(point);
+            return locations.length == 0 ? null : locations[0];
+        }
+        return location;
+    }
 
-        World world = Bukkit.getWorld(worldName);
-        if (world == null) return;
+    private Location[] findSafeLocations(ScheduledSpawnPoint point) {
+        SpawnPoint spawnPoint = point.spawnPoint;
+        World world = spawnPoint.getWorld();
+        int baseX = (int) Math.floor(spawnPoint.getX());
+        int baseY = (int) Math.floor(spawnPoint.getY());
+        int baseZ = (int) Math.floor(spawnPoint.getZ());
 
-        String entityName = (String) pointData.get("entity");
-        double x = (Double) pointData.get("x");
-        double y = (Double) pointData.get("y");
-        double z = (Double) pointData.get("z");
+        List<Location> safe = new ArrayList<>(MAX_SAFE_LOCATIONS);
+        for (int[] offset : SAFE_OFFSETS) {
+            int x = baseX + offset[0];
+            int y = baseY + offset[1];
+            int z = baseZ + offset[2];
+            // Pozycje tylko z chunka punktu - zmiana bloku w chunku unieważnia wszystkie
+            if (x >> 4 != point.chunkX || z >> 4 != point.chunkZ) continue;
+            if (!isSafePosition(world, x, y, z)) continue;
 
-        try {
-            EntityType entityType = EntityType.valueOf(entityName);
-            Location location = new Location(world, x, y, z);
-            world.spawnEntity(location, entityType);
-        } catch (IllegalArgumentException e) {
-            plugin.getLogger().warning("Invalid entity type: " + entityName);
+            if (offset[0] == 0 && offset[1] == 0 && offset[2] == 0) {
+                safe.add(point.location);
+            } else {
+                safe.add(new Location(world, x + 0.5, y, z + 0.5));
+            }
+            if (safe.size() == MAX_SAFE_LOCATIONS) break;
         }
+        return safe.isEmpty() ? NO_SAFE_LOCATIONS : safe.toArray(new Location[0]);
     }
 
     /**
-     * Natychmiast usuwa task dla spawn pointa (bez reload()).
+     * Sprawdza czy entity zmieści się na pozycji - blok na wysokości stóp i głowy musi być bezpieczny.
      */
-    public void removeSpawnPoint(String worldName, String pointName) {
-        String taskKey = worldName + ":" + pointName;
-        BukkitTask task = spawnTasks.remove(taskKey);
-        if (task != null) {
-            task.cancel();
+    private static boolean isSafePosition(World world, int x, int y, int z) {
+        if (y < world.getMinHeight() || y + 1 >= world.getMaxHeight()) {
+            return false;
+        }
+        return isSafe(world.getBlockAt(x, y, z)) && isSafe(world.getBlockAt(x, y + 1, z));
+    }
+
+    private static boolean isSafe(Block block) {
+        return block.isPassable() && block.getType() != Material.LAVA;
+    }
+
+    /**
+     * Wywoływane po zmianie bloku - unieważnia bezpieczne pozycje punktów w jego chunku.
+     */
+    public void onBlockChange(Block block) {
+        invalidateSafeLocations(block.getWorld(), block.getX() >> 4, block.getZ() >> 4);
+    }
+
+    public void invalidateSafeLocations(World world, int chunkX, int chunkZ) {
+        LongObjectMap<List<ScheduledSpawnPoint>> chunks = chunkIndex.get(world.getName());
+        if (chunks == null) return;
+        List<ScheduledSpawnPoint> inChunk = chunks.get(BlockKey.chunkKey(chunkX, chunkZ));
+        if (inChunk == null) return;
+        for (ScheduledSpawnPoint point : inChunk) {
+            point.safeLocations = null;
+        }
+    }
+
+    /**
+     * Zwalnia miejsca zarezerwowane przez niedokończoną falę punktu.
+     */
+    private void cancelWave(ScheduledSpawnPoint point) {
+        if (point.pending > 0) {
+            plugin.getEntityLimitManager().release(point.location, point.spawnPoint.getEntityType(), point.pending);
+            point.pending = 0;
+        }
+    }
+
+    /**
+     * Spawnuje encję oznaczoną kluczem punktu (oznaczenie przed dodaniem do świata,
+     * więc zdarzenie dodania encji już ją policzy).
+     */
+    private void spawnOwnedEntity(World world, Location location, ScheduledSpawnPoint point) {
+        world.spawnEntity(location, point.spawnPoint.getEntityType(), CreatureSpawnEvent.SpawnReason.CUSTOM,
+                entity -> entity.getPersistentDataContainer().set(ownerKey, PersistentDataType.STRING, point.key));
+    }
+
+    /**
+     * Zwraca punkt, który zespawnował encję, lub null jeśli encja nie pochodzi z punktu spawnu.
+     */
+    private ScheduledSpawnPoint getOwner(Entity entity) {
+        String key = entity.getPersistentDataContainer().get(ownerKey, PersistentDataType.STRING);
+        return key != null ? points.get(key) : null;
+    }
+
+    public void onEntityAdd(Entity entity) {
+        if (points.isEmpty()) return;
+        ScheduledSpawnPoint point = getOwner(entity);
+        if (point != null) {
+            point.alive++;
+        }
+    }
+
+    public void onEntityRemove(Entity entity) {
+        if (points.isEmpty()) return;
+        ScheduledSpawnPoint point = getOwner(entity);
+        if (point != null && point.alive > 0) {
+            point.alive--;
         }
     }
 
-    public void updateSpawnPointInterval(String worldName, String pointName, long intervalTicks) {
-        if (intervalTicks <= 0) return;
+    /**
+     * Liczy od zera żywe encje nowo zaplanowanych punktów (przy starcie, reloadzie i dodaniu punktu).
+     * Przeglądane są tylko światy tych punktów.
+     *
+     * @param added Klucz punktu -> punkt
+     */
+    private void countAliveEntities(Map<String, ScheduledSpawnPoint> added) {
+        if (added.isEmpty()) return;
+        Set<World> worlds = new HashSet<>();
+        for (ScheduledSpawnPoint point : added.values()) {
+            point.alive = 0;
+            worlds.add(point.spawnPoint.getWorld());
+        }
+        for (World world : worlds) {
+            for (Entity entity : world.getEntities()) {
+                String key = entity.getPersistentDataContainer().get(ownerKey, PersistentDataType.STRING);
+                ScheduledSpawnPoint point = key != null ? added.get(key) : null;
+                if (point != null) {
+                    point.alive++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Spawnuje jedną encję punktu od razu, w jednej z jego bezpiecznych pozycji.
+     *
+     * @return false jeśli punkt nie istnieje albo nie ma bezpiecznej pozycji
+     */
+    public boolean forceSpawn(String worldName, String spawnPointName) {
+        ScheduledSpawnPoint point = points.get(worldName + ":" + spawnPointName);
+        if (point == null) return false;
 
-        // startSpawnTask jest private, ale jesteśmy w tej samej klasie, więc można go użyć
-        startSpawnTask(worldName, pointName, intervalTicks);
+        Location location = nextSafeLocation(point);
+        if (location == null) {
+            plugin.getLogger().warning("Spawn point " + spawnPointName + " in world " + worldName
+                    + " has no safe position - entity not spawned.");
+            return false;
+        }
+        spawnOwnedEntity(point.spawnPoint.getWorld(), location, point);
+        return true;
+    }
+
+    /**
+     * Natychmiast usuwa punkt z harmonogramu (bez reload()).
+     */
+    public void removeSpawnPoint(String worldName, String pointName) {
+        unschedulePoint(worldName + ":" + pointName);
+    }
+
+    /**
+     * Kompiluje od nowa jeden punkt po zmianie jego ustawień (bez reload()).
+     */
+    public void updateSpawnPoint(String worldName, String pointName) {
+        SpawnPoint spawnPoint = config.getEntitySpawnPoint(worldName, pointName);
+        if (spawnPoint != null) {
+            ScheduledSpawnPoint point = new ScheduledSpawnPoint(spawnPoint);
+            boolean added = !points.containsKey(point.key);
+            schedulePoint(point);
+            if (added) {
+                countAliveEntities(Collections.singletonMap(point.key, point));
+            }
+        } else {
+            unschedulePoint(worldName + ":" + pointName);
+        }
+    }
+
+    /**
+     * Liczba żywych encji zespawnowanych przez punkt (-1 jeśli punkt nie jest zaplanowany).
+     */
+    public int getAliveCount(String worldName, String pointName) {
+        ScheduledSpawnPoint point = points.get(worldName + ":" + pointName);
+        return point != null ? point.alive : -1;
     }
 
     public void shutdown() {
-        for (BukkitTask task : spawnTasks.values()) {
-            task.cancel();
+        if (spawnTask != null) {
+            saveSchedule();
+            spawnTask.cancel();
+            spawnTask = null;
+        }
+        for (ScheduledSpawnPoint point : waves) {
+            cancelWave(point);
         }
-        spawnTasks.clear();
+        waves.clear();
+        schedule.clear();
+        points.clear();
+        chunkIndex.clear();
         plugin.getLogger().info("Entity Spawn Point Manager has shut down.");
     }
 
     public void reload() {
-        shutdown();
-        startAllSpawnTasks();
-        plugin.getLogger().info("Entity Spawn Point Manager has been reloaded.");
+        if (spawnTask == null) {
+            startAllSpawnTasks();
+            return;
+        }
+
+        activationRadius = config.getSpawnPointsActivationRadius();
+        maxSpawnsPerTick = config.getSpawnPointsMaxSpawnsPerTick();
+        int changes = applySpawnPoints();
+        plugin.getLogger().info("Entity Spawn Point Manager has been reloaded (" + changes
+                + " spawn point(s) changed).");
+    }
+
+    /**
+     * Zaplanowany punkt spawnu z tickiem następnego spawnu.
+     */
+    private static class ScheduledSpawnPoint {
+        final SpawnPoint spawnPoint;
+        final String key;
+        final Location location;
+        final int chunkX;
+        final int chunkZ;
+        long nextTick;
+        // Numer wyznaczenia, w którym punkt był ostatnio aktywny
+        long activeGeneration;
+        // Żywe (załadowane) encje zespawnowane przez punkt
+        int alive;
+        // Encje bieżącej fali czekające na zespawnowanie (zarezerwowane w limitach)
+        int pending;
+        // Sprawdzone bezpieczne pozycje (null = do wyliczenia)
+        Location[] safeLocations;
+        int nextSafe;
+
+        ScheduledSpawnPoint(SpawnPoint spawnPoint) {
+            this.spawnPoint = spawnPoint;
+            this.key = spawnPoint.getWorldName() + ":" + spawnPoint.getName();
+            this.location = spawnPoint.toLocation();
+            this.chunkX = (int) Math.floor(spawnPoint.getX()) >> 4;
+            this.chunkZ = (int) Math.floor(spawnPoint.getZ()) >> 4;
+        }
     }
-}
\ No newline at end of file
+}
@@ -2,9 +2,12 @@ package dev.nxms.guardcore.managers;
 
 import dev.nxms.guardcore.GuardCore;
 import dev.nxms.guardcore.config.ConfigManager;
-import dev.nxms.guardcore.utils.TimeParser;
+import dev.nxms.guardcore.config.WorldPolicy;
+import org.bukkit.World;
 import org.bukkit.entity.EntityType;
 
+import java.time.LocalTime;
+
 /**
  * Zarządza czasami spawnu entity.
  * Sprawdza czy aktualny czas mieści się w dozwolonym zakresie spawnu.
@@ -22,23 +25,19 @@ public class EntitySpawnTimeManager {
     /**
      * Sprawdza czy entity może się zespawnować o aktualnej godzinie.
      *
-     * @param worldName Nazwa świata
+     * @param world Świat
      * @param entityType Typ entity
      * @return true jeśli entity może się zespawnować, false w przeciwnym przypadku
      */
-    public boolean canSpawnAtCurrentTime(String worldName, EntityType entityType) {
-        String entityName = entityType.name();
-        String[] times = config.getEntitySpawnTime(worldName, entityName);
+    public boolean canSpawnAtCurrentTime(World world, EntityType entityType) {
+        WorldPolicy policy = config.getPolicy(world);
 
         // Jeśli nie ma ustawionego czasu, pozwól na spawn
-        if (times == null) {
+        if (!policy.hasSpawnTime(entityType)) {
             return true;
         }
 
-        String from = times[0];
-        String to = times[1];
-
-        return TimeParser.isCurrentTimeInRange(from, to);
+        return policy.isSpawnTimeAllowed(entityType, LocalTime.now());
     }
 
     /**
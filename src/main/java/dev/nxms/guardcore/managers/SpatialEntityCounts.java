@@ -0,0 +1,142 @@
+package dev.nxms.guardcore.managers;
+
+import dev.nxms.guardcore.config.WorldPolicy;
+import dev.nxms.guardcore.storage.LongObjectMap;
+import dev.nxms.guardcore.utils.BlockKey;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Liczniki entity w chunkach i regionach (NxN chunków) jednego świata.
+ * Liczone są tylko typy entity, które mają limit na chunk lub region.
+ */
+public class SpatialEntityCounts {
+
+    private static final int ENTITY_TYPE_COUNT = EntityType.values().length;
+    // Ostatnie pole tablicy liczników to suma - pusta tablica jest usuwana z mapy
+    private static final int TOTAL = ENTITY_TYPE_COUNT;
+
+    private WorldPolicy policy;
+    private final int regionSize;
+
+    // Klucz chunka/regionu -> liczba entity, indeksowana przez EntityType.ordinal()
+    private final LongObjectMap<int[]> chunks = new LongObjectMap<>();
+    private final LongObjectMap<int[]> regions = new LongObjectMap<>();
+    // UUID entity -> klucz chunka, w którym entity zostało policzone (entity mogą się przemieszczać)
+    private final Map<UUID, Long> tracked = new HashMap<>();
+
+    private SpatialEntityCounts(WorldPolicy policy) {
+        this.policy = policy;
+        this.regionSize = policy.getRegionSize();
+    }
+
+    /**
+     * Liczy entity świata od nowa według podanych ustawień.
+     */
+    public static SpatialEntityCounts count(World world, WorldPolicy policy) {
+        SpatialEntityCounts counts = new SpatialEntityCounts(policy);
+        for (Entity entity : world.getEntities()) {
+            counts.add(entity);
+        }
+        return counts;
+    }
+
+    public WorldPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Podmienia ustawienia, które liczą te same typy entity (patrz WorldPolicy.hasSameSpatialTracking).
+     */
+    public void setPolicy(WorldPolicy policy) {
+        this.policy = policy;
+    }
+
+    public void add(Entity entity) {
+        EntityType type = entity.getType();
+        if (!policy.isSpatiallyLimited(type)) {
+            return;
+        }
+        Location location = entity.getLocation();
+        long chunkKey = BlockKey.chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+
+        Long previous = tracked.put(entity.getUniqueId(), chunkKey);
+        if (previous != null) {
+            decrement(previous, type.ordinal());
+        }
+        increment(chunkKey, type.ordinal());
+    }
+
+    /**
+     * Przenosi policzone entity do nowego chunka (entity, które nie jest liczone, jest pomijane).
+     */
+    public void move(Entity entity, Location to) {
+        Long previous = tracked.get(entity.getUniqueId());
+        long chunkKey = BlockKey.chunkKey(to.getBlockX() >> 4, to.getBlockZ() >> 4);
+        if (previous == null || previous == chunkKey) {
+            return;
+        }
+        tracked.put(entity.getUniqueId(), chunkKey);
+        decrement(previous, entity.getType().ordinal());
+        increment(chunkKey, entity.getType().ordinal());
+    }
+
+    public void remove(Entity entity) {
+        Long chunkKey = tracked.remove(entity.getUniqueId());
+        if (chunkKey != null) {
+            decrement(chunkKey, entity.getType().ordinal());
+        }
+    }
+
+    public int getChunkCount(long chunkKey, EntityType entityType) {
+        int[] counts = chunks.get(chunkKey);
+        return counts != null ? counts[entityType.ordinal()] : 0;
+    }
+
+    public int getRegionCount(long chunkKey, EntityType entityType) {
+        int[] counts = regions.get(regionKeyOf(chunkKey));
+        return counts != null ? counts[entityType.ordinal()] : 0;
+    }
+
+    private long regionKeyOf(long chunkKey) {
+        return BlockKey.chunkKey(Math.floorDiv(BlockKey.chunkX(chunkKey), regionSize),
+                Math.floorDiv(BlockKey.chunkZ(chunkKey), regionSize));
+    }
+
+    private void increment(long chunkKey, int ordinal) {
+        increment(chunks, chunkKey, ordinal);
+        increment(regions, regionKeyOf(chunkKey), ordinal);
+    }
+
+    private void decrement(long chunkKey, int ordinal) {
+        decrement(chunks, chunkKey, ordinal);
+        decrement(regions, regionKeyOf(chunkKey), ordinal);
+    }
+
+    private static void increment(LongObjectMap<int[]> map, long key, int ordinal) {
+        int[] counts = map.get(key);
+        if (counts == null) {
+            counts = new int[ENTITY_TYPE_COUNT + 1];
+            map.put(key, counts);
+        }
+        counts[ordinal]++;
+        counts[TOTAL]++;
+    }
+
+    private static void decrement(LongObjectMap<int[]> map, long key, int ordinal) {
+        int[] counts = map.get(key);
+        if (counts == null || counts[ordinal] == 0) {
+            return;
+        }
+        counts[ordinal]--;
+        if (--counts[TOTAL] == 0) {
+            map.remove(key);
+        }
+    }
+}
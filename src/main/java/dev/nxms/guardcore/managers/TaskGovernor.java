@@ -0,0 +1,168 @@
+package dev.nxms.guardcore.managers;
+
+import dev.nxms.guardcore.GuardCore;
+import dev.nxms.guardcore.config.ConfigManager;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Rozdziela czas ticku między prace wykonywane w tle (znikanie bloków, punkty spawnu).
+ *
+ * Po każdym ticku (ServerTickEndEvent) aktualizowana jest średnia długość ticku (MSPT).
+ * Poniżej governor.targetMspt każdy podsystem dostaje pełny budżet czasu na tick,
+ * między targetMspt a governor.maxMspt budżet maleje liniowo, a powyżej maxMspt
+ * prace w tle są wstrzymane, dopóki serwer nie odetchnie.
+ */
+public class TaskGovernor {
+
+    /**
+     * Podsystemy wykonujące prace w tle.
+     */
+    public enum Subsystem {
+        DESPAWN("despawn"),
+        SPAWN_POINTS("spawnPoints");
+
+        private final String name;
+
+        Subsystem(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    // Waga nowej próbki w średniej długości ticku (ok. 20 ostatnich ticków)
+    private static final double SMOOTHING = 0.1;
+
+    private final GuardCore plugin;
+    private final ConfigManager config;
+
+    private final Map<Subsystem, SubsystemState> states = new EnumMap<>(Subsystem.class);
+
+    private double targetMspt;
+    private double maxMspt;
+    private double mspt;
+    private double scale = 1.0;
+
+    public TaskGovernor(GuardCore plugin) {
+        this.plugin = plugin;
+        this.config = plugin.getConfigManager();
+        for (Subsystem subsystem : Subsystem.values()) {
+            states.put(subsystem, new SubsystemState());
+        }
+        reload();
+    }
+
+    public void reload() {
+        targetMspt = config.getGovernorTargetMspt();
+        maxMspt = Math.max(targetMspt + 1, config.getGovernorMaxMspt());
+        states.get(Subsystem.DESPAWN).baseBudgetNanos = config.getDespawnMaxTickTimeMs() * 1_000_000L;
+        states.get(Subsystem.SPAWN_POINTS).baseBudgetNanos = config.getSpawnPointsMaxTickTimeMs() * 1_000_000L;
+    }
+
+    /**
+     * Wywoływane po zakończeniu każdego ticku serwera.
+     *
+     * @param tickDurationMs Długość zakończonego ticku w milisekundach
+     */
+    public void onTickEnd(double tickDurationMs) {
+        mspt = mspt == 0 ? tickDurationMs : mspt + (tickDurationMs - mspt) * SMOOTHING;
+
+        if (mspt <= targetMspt) {
+            scale = 1.0;
+        } else if (mspt >= maxMspt) {
+            scale = 0.0;
+        } else {
+            scale = (maxMspt - mspt) / (maxMspt - targetMspt);
+        }
+
+        for (SubsystemState state : states.values()) {
+            state.lastTickNanos = state.usedNanos;
+            state.usedNanos = 0;
+        }
+    }
+
+    /**
+     * Budżet czasu podsystemu na bieżący tick (0 = prace wstrzymane).
+     */
+    public long getBudgetNanos(Subsystem subsystem) {
+        return (long) (states.get(subsystem).baseBudgetNanos * scale);
+    }
+
+    /**
+     * Sprawdza czy podsystem ma jeszcze czas w bieżącym ticku. Odmowa jest liczona jako ograniczenie.
+     */
+    public boolean tryAcquire(Subsystem subsystem) {
+        SubsystemState state = states.get(subsystem);
+        if (state.usedNanos < getBudgetNanos(subsystem)) {
+            return true;
+        }
+        state.throttled++;
+        return false;
+    }
+
+    /**
+     * Zapisuje czas zużyty przez podsystem w bieżącym ticku.
+     */
+    public void record(Subsystem subsystem, long nanos) {
+        states.get(subsystem).usedNanos += nanos;
+    }
+
+    /**
+     * Zapisuje, że podsystem pominął pracę z powodu obciążenia serwera.
+     */
+    public void recordThrottled(Subsystem subsystem) {
+        states.get(subsystem).throttled++;
+    }
+
+    /**
+     * Średnia długość ticku (ms) z ostatnich ticków.
+     */
+    public double getMspt() {
+        return mspt;
+    }
+
+    /**
+     * Część pełnego budżetu przyznawana podsystemom (1 = pełny, 0 = wstrzymane).
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    public boolean isPaused() {
+        return scale <= 0;
+    }
+
+    /**
+     * Czy serwer ma zapas czasu (średni tick nie przekracza governor.targetMspt).
+     */
+    public boolean isIdle() {
+        return scale >= 1.0;
+    }
+
+    public double getTargetMspt() {
+        return targetMspt;
+    }
+
+    public double getMaxMspt() {
+        return maxMspt;
+    }
+
+    public long getLastTickNanos(Subsystem subsystem) {
+        return states.get(subsystem).lastTickNanos;
+    }
+
+    public long getThrottledCount(Subsystem subsystem) {
+        return states.get(subsystem).throttled;
+    }
+
+    private static class SubsystemState {
+        long baseBudgetNanos;
+        long usedNanos;
+        long lastTickNanos;
+        long throttled;
+    }
+}
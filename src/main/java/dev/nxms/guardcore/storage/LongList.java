@@ -0,0 +1,51 @@
+package dev.nxms.guardcore.storage;
+
+import java.util.Arrays;
+
+/**
+ * Rosnąca lista wartości long bez pakowania.
+ */
+public class LongList {
+
+    private long[] values;
+    private int size;
+
+    public LongList() {
+        this(8);
+    }
+
+    public LongList(int initialCapacity) {
+        values = new long[Math.max(1, initialCapacity)];
+    }
+
+    public void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size << 1);
+        }
+        values[size++] = value;
+    }
+
+    public long get(int index) {
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Usuwa count pierwszych wartości, przesuwając pozostałe na początek.
+     */
+    public void removeFirst(int count) {
+        System.arraycopy(values, count, values, 0, size - count);
+        size -= count;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
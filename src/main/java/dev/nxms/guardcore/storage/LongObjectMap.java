@@ -0,0 +1,187 @@
+package dev.nxms.guardcore.storage;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Mapa long -> obiekt bez pakowania kluczy (adresowanie otwarte, sondowanie liniowe).
+ * Wartości nie mogą być null - null oznacza pusty slot.
+ */
+public class LongObjectMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+
+    public LongObjectMap() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = findSlot(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    public boolean containsKey(long key) {
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * Wstawia wartość i zwraca poprzednią (lub null).
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            V old = (V) values[slot];
+            values[slot] = value;
+            return old;
+        }
+        if (size >= resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+        slot = mix(key) & mask;
+        while (values[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        return null;
+    }
+
+    /**
+     * Usuwa wpis i zwraca jego wartość (lub null).
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return null;
+        }
+        V old = (V) values[slot];
+
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (values[next] != null) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[gap] = null;
+        size--;
+        return old;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Iteruje po wpisach. Mapy nie wolno modyfikować w trakcie iteracji.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryVisitor<V> visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != null) {
+                visitor.visit(keys[slot], (V) values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Iteruje po wartościach. Mapy nie wolno modyfikować w trakcie iteracji.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<V> consumer) {
+        for (Object value : values) {
+            if (value != null) {
+                consumer.accept((V) value);
+            }
+        }
+    }
+
+    /**
+     * Zwraca kopię kluczy (bezpieczna do modyfikacji mapy w trakcie przetwarzania).
+     */
+    public long[] keys() {
+        long[] result = new long[size];
+        int index = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != null) {
+                result[index++] = keys[slot];
+            }
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    public interface EntryVisitor<V> {
+        void visit(long key, V value);
+    }
+
+    private int findSlot(long key) {
+        int slot = mix(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
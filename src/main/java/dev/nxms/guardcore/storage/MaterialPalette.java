@@ -0,0 +1,61 @@
+package dev.nxms.guardcore.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Słownik nazw materiałów -> indeks int.
+ * Pozwala przechowywać materiał przy każdym bloku jako int. Na dysku zapisywane są nazwy,
+ * bo numeracja enuma Material zmienia się między wersjami serwera.
+ */
+public class MaterialPalette {
+
+    public static final int NO_MATERIAL = -1;
+
+    private final List<String> materials = new ArrayList<>();
+    private final Map<String, Integer> indices = new HashMap<>();
+
+    /**
+     * Zwraca indeks materiału, dodając go do słownika jeśli jeszcze go nie ma.
+     */
+    public int indexOf(String name) {
+        if (name == null) {
+            return NO_MATERIAL;
+        }
+        Integer index = indices.get(name);
+        if (index == null) {
+            index = materials.size();
+            materials.add(name);
+            indices.put(name, index);
+        }
+        return index;
+    }
+
+    /**
+     * Zwraca nazwę materiału dla indeksu lub null.
+     */
+    public String get(int index) {
+        if (index < 0 || index >= materials.size()) {
+            return null;
+        }
+        return materials.get(index);
+    }
+
+    /**
+     * Zwraca kopię słownika (indeks -> nazwa), np. do zapisu w tle.
+     */
+    public List<String> toList() {
+        return new ArrayList<>(materials);
+    }
+
+    public int size() {
+        return materials.size();
+    }
+
+    public void clear() {
+        materials.clear();
+        indices.clear();
+    }
+}
@@ -0,0 +1,187 @@
+package dev.nxms.guardcore.storage;
+
+import dev.nxms.guardcore.utils.BlockKey;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Kompaktowe kodowanie chunka postawionych bloków.
+ * Wpisy są sortowane po pozycji lokalnej w chunku i zapisywane jako varinty różnicowe:
+ * pozycja (delta), czas postawienia (delta zigzag), flagi (bajt), indeks gracza (+1), indeks materiału (+1).
+ *
+ * Starszy format (pliki regionów w wersji 1) nie ma indeksu materiału - takie shardy
+ * są przekodowywane przy wczytaniu (upgradeLegacy).
+ */
+public class PlacedBlockCodec {
+
+    /**
+     * Koduje shard chunka do tablicy bajtów.
+     */
+    public static byte[] encode(PlacedBlockMap shard) {
+        int size = shard.size();
+
+        // Sortuj po pozycji lokalnej: (lokalna pozycja << 32) | slot
+        long[] order = new long[size];
+        int n = 0;
+        for (int slot = 0; slot < shard.capacity(); slot++) {
+            if (shard.isUsed(slot)) {
+                order[n++] = ((long) localIndex(shard.keyAt(slot)) << 32) | slot;
+            }
+        }
+        Arrays.sort(order);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size * 6 + 5);
+        writeVarInt(out, size);
+
+        int previousLocal = 0;
+        long previousTime = 0;
+        for (long entry : order) {
+            int slot = (int) entry;
+            int local = (int) (entry >>> 32);
+            long time = shard.placedTimeAt(slot);
+
+            writeVarInt(out, local - previousLocal);
+            writeVarLong(out, zigzag(time - previousTime));
+            out.write(shard.flagsAt(slot));
+            writeVarInt(out, shard.placerAt(slot) + 1);
+            writeVarInt(out, shard.materialAt(slot) + 1);
+
+            previousLocal = local;
+            previousTime = time;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Dekoduje shard chunka.
+     */
+    public static PlacedBlockMap decode(byte[] data, int chunkX, int chunkZ) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        PlacedBlockMap shard = new PlacedBlockMap(peekCount(data));
+        forEach(buffer, chunkX, chunkZ, true, shard::put);
+        return shard;
+    }
+
+    /**
+     * Przekodowuje shard zapisany w starszym formacie (bez materiałów) do bieżącego formatu.
+     */
+    public static byte[] upgradeLegacy(byte[] data, int chunkX, int chunkZ) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        PlacedBlockMap shard = new PlacedBlockMap(peekCount(data));
+        forEach(buffer, chunkX, chunkZ, false, shard::put);
+        return encode(shard);
+    }
+
+    /**
+     * Zwraca liczbę wpisów w zakodowanym shardzie.
+     */
+    public static int peekCount(byte[] data) {
+        return readVarInt(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Zwraca posortowane indeksy materiałów (także NO_MATERIAL) występujących w zakodowanym shardzie.
+     */
+    public static int[] materialsOf(byte[] data) {
+        BitSet materials = new BitSet();
+        forEach(ByteBuffer.wrap(data), 0, 0, true,
+                (position, placedTime, flags, placer, material) -> materials.set(material + 1));
+        int[] result = new int[materials.cardinality()];
+        int n = 0;
+        for (int bit = materials.nextSetBit(0); bit >= 0; bit = materials.nextSetBit(bit + 1)) {
+            result[n++] = bit - 1;
+        }
+        return result;
+    }
+
+    /**
+     * Iteruje po wpisach zakodowanego shardu bez budowania mapy.
+     */
+    public static void forEach(byte[] data, int chunkX, int chunkZ, PlacedBlockMap.Visitor visitor) {
+        forEach(ByteBuffer.wrap(data), chunkX, chunkZ, true, visitor);
+    }
+
+    private static void forEach(ByteBuffer buffer, int chunkX, int chunkZ, boolean withMaterials,
+                                PlacedBlockMap.Visitor visitor) {
+        int count = readVarInt(buffer);
+        int baseX = chunkX << 4;
+        int baseZ = chunkZ << 4;
+
+        int local = 0;
+        long time = 0;
+        for (int i = 0; i < count; i++) {
+            local += readVarInt(buffer);
+            time += unzigzag(readVarLong(buffer));
+            byte flags = buffer.get();
+            int placer = readVarInt(buffer) - 1;
+            int material = withMaterials ? readVarInt(buffer) - 1 : MaterialPalette.NO_MATERIAL;
+
+            int x = baseX + (local & 15);
+            int z = baseZ + ((local >> 4) & 15);
+            int y = (local << 12) >> 20;
+            visitor.visit(BlockKey.pack(x, y, z), time, flags, placer, material);
+        }
+    }
+
+    /**
+     * Pozycja bloku w obrębie chunka: y (12 bitów) | z (4 bity) | x (4 bity).
+     */
+    private static int localIndex(long packed) {
+        return ((BlockKey.unpackY(packed) & 0xFFF) << 8)
+                | ((BlockKey.unpackZ(packed) & 15) << 4)
+                | (BlockKey.unpackX(packed) & 15);
+    }
+
+    // ===== VARINT =====
+
+    static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
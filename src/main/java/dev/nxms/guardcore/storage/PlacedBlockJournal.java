@@ -0,0 +1,387 @@
+package dev.nxms.guardcore.storage;
+
+import dev.nxms.guardcore.utils.AtomicFiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Dziennik zmian postawionych bloków (append-only).
+ *
+ * Wątek główny dopisuje rekordy do bufora w pamięci, wątek I/O co chwilę zapisuje
+ * cały bufor jako jedną ramkę i wykonuje jeden fsync dla wszystkich zmian (group commit).
+ * Dziennik jest podzielony na segmenty (journal.&lt;generacja&gt;.log) - po kompaktowaniu
+ * segmenty sprzed zrzutu regionów są usuwane.
+ *
+ * Ramka: długość (int), CRC32 (int), rekordy. Rekordy:
+ * - WORLD: id (varint), nazwa (varint długość + UTF-8)
+ * - PLAYER: indeks w słowniku (varint), UUID (2x long)
+ * - MATERIAL: indeks w słowniku (varint), nazwa (varint długość + UTF-8)
+ * - PUT_MATERIAL: jak PUT, a na końcu materiał + 1 (varint)
+ * - PUT: id świata (varint), pozycja (long), czas (varlong), flagi (bajt), gracz + 1 (varint)
+ *   (starszy rekord bez materiału - tylko odtwarzany)
+ * - REMOVE: id świata (varint), pozycja (long)
+ */
+public class PlacedBlockJournal {
+
+    private static final String PREFIX = "journal.";
+    private static final String EXTENSION = ".log";
+
+    private static final byte OP_WORLD = 1;
+    private static final byte OP_PLAYER = 2;
+    private static final byte OP_PUT = 3;
+    private static final byte OP_REMOVE = 4;
+    private static final byte OP_MATERIAL = 5;
+    private static final byte OP_PUT_MATERIAL = 6;
+
+    private final Path directory;
+    private final Logger logger;
+    private final Object lock = new Object();
+
+    // Stan bieżącego segmentu (chroniony przez lock)
+    private long generation;
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final List<Segment> sealed = new ArrayList<>();
+    private final Map<String, Integer> worldIds = new HashMap<>();
+    private final BitSet definedPlayers = new BitSet();
+    private final BitSet definedMaterials = new BitSet();
+    private long segmentBytes;
+
+    // Stan wątku I/O
+    private FileChannel channel;
+    private long channelGeneration = -1;
+
+    public PlacedBlockJournal(Path directory, Logger logger) {
+        this.directory = directory;
+        this.logger = logger;
+    }
+
+    // ===== DOPISYWANIE (wątek główny) =====
+
+    public void logPut(String worldName, long position, long placedTime, byte flags, int placer, UUID playerUUID,
+                       int material, String materialName) {
+        synchronized (lock) {
+            int worldId = defineWorld(worldName);
+            if (placer >= 0 && !definedPlayers.get(placer)) {
+                definedPlayers.set(placer);
+                buffer.write(OP_PLAYER);
+                PlacedBlockCodec.writeVarInt(buffer, placer);
+                writeLong(buffer, playerUUID.getMostSignificantBits());
+                writeLong(buffer, playerUUID.getLeastSignificantBits());
+            }
+            if (material >= 0 && !definedMaterials.get(material)) {
+                definedMaterials.set(material);
+                byte[] name = materialName.getBytes(StandardCharsets.UTF_8);
+                buffer.write(OP_MATERIAL);
+                PlacedBlockCodec.writeVarInt(buffer, material);
+                PlacedBlockCodec.writeVarInt(buffer, name.length);
+                buffer.write(name, 0, name.length);
+            }
+            int before = buffer.size();
+            buffer.write(OP_PUT_MATERIAL);
+            PlacedBlockCodec.writeVarInt(buffer, worldId);
+            writeLong(buffer, position);
+            PlacedBlockCodec.writeVarLong(buffer, placedTime);
+            buffer.write(flags);
+            PlacedBlockCodec.writeVarInt(buffer, placer + 1);
+            PlacedBlockCodec.writeVarInt(buffer, material + 1);
+            segmentBytes += buffer.size() - before;
+        }
+    }
+
+    public void logRemove(String worldName, long position) {
+        synchronized (lock) {
+            int worldId = defineWorld(worldName);
+            int before = buffer.size();
+            buffer.write(OP_REMOVE);
+            PlacedBlockCodec.writeVarInt(buffer, worldId);
+            writeLong(buffer, position);
+            segmentBytes += buffer.size() - before;
+        }
+    }
+
+    /**
+     * Zamyka bieżący segment i zaczyna nowy. Wywoływane w momencie zrzutu regionów -
+     * wszystkie zmiany z segmentów starszych niż zwrócona generacja są w zrzucie.
+     */
+    public long rotate() {
+        synchronized (lock) {
+            sealed.add(new Segment(generation, buffer));
+            buffer = new ByteArrayOutputStream();
+            generation++;
+            worldIds.clear();
+            definedPlayers.clear();
+            definedMaterials.clear();
+            segmentBytes = 0;
+            return generation;
+        }
+    }
+
+    /**
+     * Liczba bajtów rekordów zapisanych w bieżącym segmencie.
+     */
+    public long getSegmentBytes() {
+        synchronized (lock) {
+            return segmentBytes;
+        }
+    }
+
+    private int defineWorld(String worldName) {
+        Integer id = worldIds.get(worldName);
+        if (id == null) {
+            id = worldIds.size();
+            worldIds.put(worldName, id);
+            byte[] name = worldName.getBytes(StandardCharsets.UTF_8);
+            buffer.write(OP_WORLD);
+            PlacedBlockCodec.writeVarInt(buffer, id);
+            PlacedBlockCodec.writeVarInt(buffer, name.length);
+            buffer.write(name, 0, name.length);
+        }
+        return id;
+    }
+
+    // ===== ZAPIS (wątek I/O) =====
+
+    /**
+     * Zapisuje zbuforowane rekordy na dysk i wykonuje fsync.
+     */
+    public void flush() throws IOException {
+        List<Segment> toWrite;
+        synchronized (lock) {
+            toWrite = new ArrayList<>(sealed);
+            sealed.clear();
+            if (buffer.size() > 0) {
+                toWrite.add(new Segment(generation, buffer));
+                buffer = new ByteArrayOutputStream();
+            }
+        }
+
+        for (Segment segment : toWrite) {
+            if (segment.data.size() == 0) {
+                continue;
+            }
+            FileChannel target = channelFor(segment.generation);
+            byte[] payload = segment.data.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+
+            ByteBuffer header = ByteBuffer.allocate(8);
+            header.putInt(payload.length);
+            header.putInt((int) crc.getValue());
+            header.flip();
+            ByteBuffer body = ByteBuffer.wrap(payload);
+            while (header.hasRemaining() || body.hasRemaining()) {
+                target.write(new ByteBuffer[]{header, body});
+            }
+            target.force(false);
+        }
+    }
+
+    /**
+     * Usuwa segmenty starsze niż podana generacja (ich zmiany są już w plikach regionów).
+     */
+    public void deleteSegmentsBefore(long generation) throws IOException {
+        if (channel != null && channelGeneration < generation) {
+            channel.close();
+            channel = null;
+            channelGeneration = -1;
+        }
+        for (long segment : listSegments(directory)) {
+            if (segment < generation) {
+                Files.deleteIfExists(segmentPath(directory, segment));
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+            channelGeneration = -1;
+        }
+    }
+
+    private FileChannel channelFor(long segmentGeneration) throws IOException {
+        if (channel != null && channelGeneration == segmentGeneration) {
+            return channel;
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        Files.createDirectories(directory);
+        channel = FileChannel.open(segmentPath(directory, segmentGeneration), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        channelGeneration = segmentGeneration;
+        return channel;
+    }
+
+    // ===== ODTWARZANIE (przy starcie) =====
+
+    /**
+     * Odtwarza wszystkie segmenty dziennika na rejestrze (po wczytaniu regionów).
+     * Uszkodzona lub urwana ramka kończy odczyt segmentu.
+     *
+     * @return liczba odtworzonych zmian
+     */
+    public int replay(PlacedBlockStore store) {
+        int applied = 0;
+        long lastSegment = -1;
+        for (long segment : listSegments(directory)) {
+            lastSegment = segment;
+            Path path = segmentPath(directory, segment);
+            try {
+                applied += replaySegment(AtomicFiles.readFully(path), store, path);
+            } catch (IOException e) {
+                logger.severe("Could not read placed blocks journal " + path + ": " + e.getMessage());
+            }
+        }
+        synchronized (lock) {
+            // Nowe zmiany trafiają do nowego segmentu, odtworzone zostaną usunięte po kompaktowaniu
+            generation = lastSegment + 1;
+        }
+        return applied;
+    }
+
+    private int replaySegment(ByteBuffer buffer, PlacedBlockStore store, Path path) {
+        Map<Integer, String> worlds = new HashMap<>();
+        Map<Integer, Integer> players = new HashMap<>();
+        Map<Integer, Integer> materials = new HashMap<>();
+        int applied = 0;
+
+        while (buffer.remaining() >= 8) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                logger.warning("Placed blocks journal " + path + " ends with a truncated frame, ignoring it.");
+                break;
+            }
+            ByteBuffer frame = buffer.slice();
+            frame.limit(length);
+            buffer.position(buffer.position() + length);
+
+            CRC32 crc = new CRC32();
+            crc.update(frame.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                logger.warning("Placed blocks journal " + path + " has a corrupted frame, ignoring the rest of it.");
+                break;
+            }
+
+            try {
+                applied += replayFrame(frame, store, worlds, players, materials);
+            } catch (RuntimeException e) {
+                logger.warning("Placed blocks journal " + path + " has an invalid record, ignoring the rest of it.");
+                break;
+            }
+        }
+        return applied;
+    }
+
+    private int replayFrame(ByteBuffer frame, PlacedBlockStore store, Map<Integer, String> worlds,
+                            Map<Integer, Integer> players, Map<Integer, Integer> materials) {
+        int applied = 0;
+        while (frame.hasRemaining()) {
+            byte op = frame.get();
+            switch (op) {
+                case OP_WORLD -> {
+                    int id = PlacedBlockCodec.readVarInt(frame);
+                    byte[] name = new byte[PlacedBlockCodec.readVarInt(frame)];
+                    frame.get(name);
+                    worlds.put(id, new String(name, StandardCharsets.UTF_8));
+                }
+                case OP_PLAYER -> {
+                    int index = PlacedBlockCodec.readVarInt(frame);
+                    UUID uuid = new UUID(frame.getLong(), frame.getLong());
+                    players.put(index, store.getPalette().indexOf(uuid));
+                }
+                case OP_MATERIAL -> {
+                    int index = PlacedBlockCodec.readVarInt(frame);
+                    byte[] name = new byte[PlacedBlockCodec.readVarInt(frame)];
+                    frame.get(name);
+                    materials.put(index, store.getMaterialPalette().indexOf(new String(name, StandardCharsets.UTF_8)));
+                }
+                case OP_PUT, OP_PUT_MATERIAL -> {
+                    String world = worlds.get(PlacedBlockCodec.readVarInt(frame));
+                    long position = frame.getLong();
+                    long placedTime = PlacedBlockCodec.readVarLong(frame);
+                    byte flags = frame.get();
+                    int placer = PlacedBlockCodec.readVarInt(frame) - 1;
+                    int material = op == OP_PUT_MATERIAL ? PlacedBlockCodec.readVarInt(frame) - 1
+                            : MaterialPalette.NO_MATERIAL;
+                    int mappedPlayer = placer < 0 ? PlayerPalette.NO_PLAYER
+                            : players.getOrDefault(placer, PlayerPalette.NO_PLAYER);
+                    int mappedMaterial = material < 0 ? MaterialPalette.NO_MATERIAL
+                            : materials.getOrDefault(material, MaterialPalette.NO_MATERIAL);
+                    if (world == null) {
+                        throw new IllegalStateException("Unknown journal world");
+                    }
+                    store.put(world, position, placedTime, flags, mappedPlayer, mappedMaterial);
+                    applied++;
+                }
+                case OP_REMOVE -> {
+                    String world = worlds.get(PlacedBlockCodec.readVarInt(frame));
+                    if (world == null) {
+                        throw new IllegalStateException("Unknown journal world");
+                    }
+                    store.remove(world, frame.getLong());
+                    applied++;
+                }
+                default -> throw new IllegalStateException("Unknown journal record: " + op);
+            }
+        }
+        return applied;
+    }
+
+    // ===== NARZĘDZIA =====
+
+    private static List<Long> listSegments(Path directory) {
+        List<Long> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - EXTENSION.length())));
+                } catch (NumberFormatException ignored) {}
+            }
+        } catch (IOException ignored) {}
+        segments.sort(null);
+        return segments;
+    }
+
+    private static Path segmentPath(Path directory, long generation) {
+        return directory.resolve(PREFIX + generation + EXTENSION);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    private static class Segment {
+        final long generation;
+        final ByteArrayOutputStream data;
+
+        Segment(long generation, ByteArrayOutputStream data) {
+            this.generation = generation;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package dev.nxms.guardcore.storage;
+
+import java.util.Arrays;
+
+/**
+ * Prymitywna mapa postawionych bloków: spakowana pozycja (long) -> dane bloku.
+ * Adresowanie otwarte z sondowaniem liniowym, dane trzymane w osobnych tablicach
+ * (czas postawienia, flagi, indeks gracza, indeks materiału), więc wpis nie tworzy żadnych obiektów.
+ */
+public class PlacedBlockMap {
+
+    public static final byte FLAG_BYPASS_DESPAWN = 1;
+    public static final byte FLAG_TRACK_DESPAWN = 1 << 1;
+
+    // Bit zajętości slotu - nie jest częścią flag widocznych na zewnątrz
+    private static final byte FLAG_USED = (byte) 0x80;
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private long[] keys;
+    private long[] placedTimes;
+    private int[] placers;
+    private int[] materials;
+    private byte[] flags;
+
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+
+    public PlacedBlockMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PlacedBlockMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Dodaje lub nadpisuje wpis dla pozycji.
+     */
+    public void put(long key, long placedTime, byte blockFlags, int placer, int material) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            if (size >= resizeThreshold) {
+                rehash(keys.length << 1);
+            }
+            slot = insertionSlot(key);
+            size++;
+        }
+        keys[slot] = key;
+        placedTimes[slot] = placedTime;
+        placers[slot] = placer;
+        materials[slot] = material;
+        flags[slot] = (byte) (FLAG_USED | (blockFlags & ~FLAG_USED));
+    }
+
+    /**
+     * Usuwa wpis (przesunięcie wsteczne zamiast nagrobków).
+     *
+     * @return true jeśli wpis istniał
+     */
+    public boolean remove(long key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return false;
+        }
+
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while ((flags[next] & FLAG_USED) != 0) {
+            int home = mix(keys[next]) & mask;
+            // Przesuń wpis do luki jeśli jego slot domowy nie leży między luką a nim
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                placedTimes[gap] = placedTimes[next];
+                placers[gap] = placers[next];
+                materials[gap] = materials[next];
+                flags[gap] = flags[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        flags[gap] = 0;
+        size--;
+        return true;
+    }
+
+    public boolean contains(long key) {
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * Zwraca slot wpisu lub -1. Slot jest ważny do następnej modyfikacji mapy.
+     */
+    public int indexOf(long key) {
+        return findSlot(key);
+    }
+
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public long placedTimeAt(int slot) {
+        return placedTimes[slot];
+    }
+
+    public int placerAt(int slot) {
+        return placers[slot];
+    }
+
+    /**
+     * Indeks materiału w MaterialPalette (MaterialPalette.NO_MATERIAL jeśli nieznany).
+     */
+    public int materialAt(int slot) {
+        return materials[slot];
+    }
+
+    public byte flagsAt(int slot) {
+        return (byte) (flags[slot] & ~FLAG_USED);
+    }
+
+    /**
+     * Sprawdza czy blok z danymi flagami powinien zniknąć (śledzony i bez bypass).
+     */
+    public static boolean shouldDespawn(byte flags) {
+        return (flags & FLAG_TRACK_DESPAWN) != 0 && (flags & FLAG_BYPASS_DESPAWN) == 0;
+    }
+
+    public boolean isUsed(int slot) {
+        return (flags[slot] & FLAG_USED) != 0;
+    }
+
+    /**
+     * Zwraca rozmiar tablic (do iteracji po slotach z isUsed()).
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(flags, (byte) 0);
+        size = 0;
+    }
+
+    /**
+     * Iteruje po wszystkich wpisach. Mapy nie wolno modyfikować w trakcie iteracji.
+     */
+    public void forEach(Visitor visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if ((flags[slot] & FLAG_USED) != 0) {
+                visitor.visit(keys[slot], placedTimes[slot], (byte) (flags[slot] & ~FLAG_USED), placers[slot],
+                        materials[slot]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(long key, long placedTime, byte flags, int placer, int material);
+    }
+
+    private int findSlot(long key) {
+        int slot = mix(key) & mask;
+        while ((flags[slot] & FLAG_USED) != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int insertionSlot(long key) {
+        int slot = mix(key) & mask;
+        while ((flags[slot] & FLAG_USED) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        long[] oldTimes = placedTimes;
+        int[] oldPlacers = placers;
+        int[] oldMaterials = materials;
+        byte[] oldFlags = flags;
+
+        allocate(newCapacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if ((oldFlags[i] & FLAG_USED) != 0) {
+                int slot = insertionSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                placedTimes[slot] = oldTimes[i];
+                placers[slot] = oldPlacers[i];
+                materials[slot] = oldMaterials[i];
+                flags[slot] = oldFlags[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        placedTimes = new long[capacity];
+        placers = new int[capacity];
+        materials = new int[capacity];
+        flags = new byte[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+        int capacity = Integer.highestOneBit(Math.max(needed, DEFAULT_CAPACITY) - 1) << 1;
+        return Math.max(capacity, DEFAULT_CAPACITY);
+    }
+
+    private static int mix(long key) {
+        // Finalizer z MurmurHash3 - rozprasza sąsiednie pozycje po całej tablicy
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
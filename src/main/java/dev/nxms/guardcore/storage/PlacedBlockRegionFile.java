@@ -0,0 +1,382 @@
+package dev.nxms.guardcore.storage;
+
+import dev.nxms.guardcore.utils.AtomicFiles;
+import dev.nxms.guardcore.utils.BlockKey;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+
+/**
+ * Binarny plik regionu postawionych bloków (32x32 chunki).
+ *
+ * Układ pliku (wersja 3):
+ * - nagłówek: magic (int), wersja (bajt), regionX (int), regionZ (int), liczba chunków (int),
+ *   długość tabeli chunków (int), CRC32 tabeli (int)
+ * - tabela chunków: dla każdego chunka indeks w regionie (short), liczba bloków (varint),
+ *   długość danych (varint), CRC32 danych (int), materiały w chunku (varint liczba + varint indeksy + 1)
+ * - dane: shardy zakodowane przez PlacedBlockCodec, w kolejności tabeli
+ *
+ * Tabela pozwala wczytać pojedynczy chunk bez czytania całego pliku, a lista materiałów -
+ * pominąć chunki bez interesujących materiałów.
+ *
+ * Wersje 1 i 2 (bez tabeli; wersja 1 bez materiałów) są nadal czytane przez read,
+ * a przy starcie przepisywane do bieżącego formatu (upgrade).
+ */
+public class PlacedBlockRegionFile {
+
+    public static final String EXTENSION = ".gcpb";
+
+    private static final int MAGIC = 0x47435042; // "GCPB"
+    private static final byte VERSION = 3;
+    private static final byte VERSION_NO_TABLE = 2;
+    private static final byte LEGACY_VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 1 + 4 + 4 + 4 + 4 + 4;
+    private static final int LEGACY_HEADER_SIZE = 4 + 1 + 4 + 4 + 4 + 4;
+    private static final int REGION_SHIFT = 5;
+    private static final int REGION_MASK = (1 << REGION_SHIFT) - 1;
+
+    /**
+     * Nazwa pliku regionu, np. "r.-1.3.gcpb".
+     */
+    public static String fileName(long regionKey) {
+        return "r." + BlockKey.chunkX(regionKey) + "." + BlockKey.chunkZ(regionKey) + EXTENSION;
+    }
+
+    /**
+     * Zapisuje region (klucz chunka -> zakodowany shard) atomowo: plik tymczasowy + przeniesienie.
+     */
+    public static void write(Path path, long regionKey, LongObjectMap<byte[]> chunks) throws IOException {
+        AtomicFiles.replace(writeTemp(path, regionKey, chunks), path);
+    }
+
+    /**
+     * Zapisuje region do pliku tymczasowego obok pliku docelowego (podmiana - AtomicFiles.replace).
+     *
+     * @return Ścieżka pliku tymczasowego
+     */
+    public static Path writeTemp(Path path, long regionKey, LongObjectMap<byte[]> chunks) throws IOException {
+        ByteArrayOutputStream table = new ByteArrayOutputStream(chunks.size() * 16);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        CRC32 crc = new CRC32();
+        for (long chunkKey : chunks.keys()) {
+            byte[] data = chunks.get(chunkKey);
+            int local = ((BlockKey.chunkZ(chunkKey) & REGION_MASK) << REGION_SHIFT)
+                    | (BlockKey.chunkX(chunkKey) & REGION_MASK);
+            crc.reset();
+            crc.update(data);
+
+            table.write(local >>> 8);
+            table.write(local);
+            PlacedBlockCodec.writeVarInt(table, PlacedBlockCodec.peekCount(data));
+            PlacedBlockCodec.writeVarInt(table, data.length);
+            writeInt(table, (int) crc.getValue());
+            int[] materials = PlacedBlockCodec.materialsOf(data);
+            PlacedBlockCodec.writeVarInt(table, materials.length);
+            for (int material : materials) {
+                PlacedBlockCodec.writeVarInt(table, material + 1);
+            }
+            body.write(data, 0, data.length);
+        }
+        byte[] tableBytes = table.toByteArray();
+        crc.reset();
+        crc.update(tableBytes);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.put(VERSION);
+        header.putInt(BlockKey.chunkX(regionKey));
+        header.putInt(BlockKey.chunkZ(regionKey));
+        header.putInt(chunks.size());
+        header.putInt(tableBytes.length);
+        header.putInt((int) crc.getValue());
+        header.flip();
+
+        return AtomicFiles.writeTemp(path, header, ByteBuffer.wrap(tableBytes), ByteBuffer.wrap(body.toByteArray()));
+    }
+
+    /**
+     * Wczytuje region i przekazuje jego shardy (klucz chunka -> zakodowany shard).
+     * Czyta wszystkie wersje formatu, shardy w wersji 1 są przekodowywane do bieżącego formatu.
+     */
+    public static void read(Path path, LongObjectMap.EntryVisitor<byte[]> visitor) throws IOException {
+        ByteBuffer buffer = AtomicFiles.readFully(path);
+        byte version = readVersion(buffer);
+        if (version == VERSION) {
+            Header header = parseHeader(buffer);
+            try {
+                for (long chunkKey : header.entries.keys()) {
+                    Entry entry = header.entries.get(chunkKey);
+                    byte[] data = new byte[entry.length];
+                    buffer.get((int) entry.offset, data);
+                    verify(data, entry);
+                    visitor.visit(chunkKey, data);
+                }
+            } catch (IndexOutOfBoundsException e) {
+                throw new IOException("Truncated region file", e);
+            }
+            return;
+        }
+        readWithoutTable(buffer, version, visitor);
+    }
+
+    /**
+     * Wczytuje tylko nagłówek i tabelę chunków regionu (plik w bieżącej wersji).
+     *
+     * @throws IOException także gdy plik jest w starszej wersji (patrz upgrade)
+     */
+    public static Header readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readAt(channel, header, 0);
+        header.flip();
+        if (readVersion(header) != VERSION) {
+            throw new IOException("Region file needs upgrade");
+        }
+        int tableLength = header.getInt(HEADER_SIZE - 8);
+        if (tableLength < 0 || HEADER_SIZE + (long) tableLength > channel.size()) {
+            throw new IOException("Truncated region file");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + tableLength);
+        buffer.put(header.rewind());
+        readAt(channel, buffer, HEADER_SIZE);
+        buffer.flip();
+        readVersion(buffer);
+        return parseHeader(buffer);
+    }
+
+    /**
+     * Wczytuje zakodowany shard jednego chunka na podstawie wpisu z tabeli.
+     */
+    public static byte[] readChunk(FileChannel channel, Entry entry) throws IOException {
+        if (entry.offset + entry.length > channel.size()) {
+            throw new IOException("Truncated region file");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+        readAt(channel, buffer, entry.offset);
+        byte[] data = buffer.array();
+        verify(data, entry);
+        return data;
+    }
+
+    /**
+     * Przepisuje plik w starszej wersji do bieżącego formatu.
+     *
+     * @return true jeśli plik został przepisany
+     */
+    public static boolean upgrade(Path path) throws IOException {
+        ByteBuffer buffer = AtomicFiles.readFully(path);
+        byte version = readVersion(buffer);
+        if (version == VERSION) {
+            return false;
+        }
+        long regionKey = BlockKey.chunkKey(buffer.getInt(5), buffer.getInt(9));
+        LongObjectMap<byte[]> chunks = new LongObjectMap<>();
+        readWithoutTable(buffer, version, chunks::put);
+        write(path, regionKey, chunks);
+        return true;
+    }
+
+    private static byte readVersion(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < LEGACY_HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Invalid region file header");
+        }
+        byte version = buffer.get();
+        if (version != VERSION && version != VERSION_NO_TABLE && version != LEGACY_VERSION) {
+            throw new IOException("Unsupported region file version: " + version);
+        }
+        return version;
+    }
+
+    /**
+     * Czyta nagłówek i tabelę chunków z bufora ustawionego za bajtem wersji.
+     */
+    private static Header parseHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE - 5) {
+            throw new IOException("Invalid region file header");
+        }
+        int regionX = buffer.getInt();
+        int regionZ = buffer.getInt();
+        int chunkCount = buffer.getInt();
+        int tableLength = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (tableLength < 0 || tableLength > buffer.remaining()) {
+            throw new IOException("Truncated region file");
+        }
+
+        ByteBuffer table = buffer.slice(buffer.position(), tableLength);
+        CRC32 crc = new CRC32();
+        crc.update(table.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Region file checksum mismatch");
+        }
+
+        LongObjectMap<Entry> entries = new LongObjectMap<>();
+        long offset = HEADER_SIZE + tableLength;
+        try {
+            for (int i = 0; i < chunkCount; i++) {
+                int local = table.getShort() & 0xFFFF;
+                int blockCount = PlacedBlockCodec.readVarInt(table);
+                int length = PlacedBlockCodec.readVarInt(table);
+                int dataCrc = table.getInt();
+                int[] materials = new int[PlacedBlockCodec.readVarInt(table)];
+                for (int m = 0; m < materials.length; m++) {
+                    materials[m] = PlacedBlockCodec.readVarInt(table) - 1;
+                }
+
+                int chunkX = (regionX << REGION_SHIFT) | (local & REGION_MASK);
+                int chunkZ = (regionZ << REGION_SHIFT) | ((local >>> REGION_SHIFT) & REGION_MASK);
+                entries.put(BlockKey.chunkKey(chunkX, chunkZ), new Entry(offset, length, dataCrc, blockCount, materials));
+                offset += length;
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Truncated region file", e);
+        }
+        buffer.position(buffer.position() + tableLength);
+        return new Header(entries);
+    }
+
+    private static void readWithoutTable(ByteBuffer buffer, byte version, LongObjectMap.EntryVisitor<byte[]> visitor)
+            throws IOException {
+        int regionX = buffer.getInt();
+        int regionZ = buffer.getInt();
+        int chunkCount = buffer.getInt();
+        int checksum = buffer.getInt();
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Region file checksum mismatch");
+        }
+
+        try {
+            for (int i = 0; i < chunkCount; i++) {
+                int local = buffer.getShort() & 0xFFFF;
+                byte[] data = new byte[PlacedBlockCodec.readVarInt(buffer)];
+                buffer.get(data);
+
+                int chunkX = (regionX << REGION_SHIFT) | (local & REGION_MASK);
+                int chunkZ = (regionZ << REGION_SHIFT) | ((local >>> REGION_SHIFT) & REGION_MASK);
+                if (version == LEGACY_VERSION) {
+                    data = PlacedBlockCodec.upgradeLegacy(data, chunkX, chunkZ);
+                }
+                visitor.visit(BlockKey.chunkKey(chunkX, chunkZ), data);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Truncated region file", e);
+        }
+    }
+
+    private static void verify(byte[] data, Entry entry) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if ((int) crc.getValue() != entry.crc) {
+            throw new IOException("Region chunk checksum mismatch");
+        }
+    }
+
+    private static void readAt(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Truncated region file");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Otwiera plik regionu do odczytu pojedynczych chunków.
+     */
+    public static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    /**
+     * Tabela chunków regionu (klucz chunka -> wpis).
+     */
+    public static final class Header {
+
+        public static final Header EMPTY = new Header(new LongObjectMap<>());
+
+        private final LongObjectMap<Entry> entries;
+        private final int blockCount;
+
+        private Header(LongObjectMap<Entry> entries) {
+            this.entries = entries;
+            int count = 0;
+            for (long chunkKey : entries.keys()) {
+                count += entries.get(chunkKey).blockCount;
+            }
+            this.blockCount = count;
+        }
+
+        /**
+         * Wpis chunka lub null jeśli chunk nie ma zapisanych bloków.
+         */
+        public Entry get(long chunkKey) {
+            return entries.get(chunkKey);
+        }
+
+        public void forEach(LongObjectMap.EntryVisitor<Entry> visitor) {
+            entries.forEach(visitor);
+        }
+
+        public int getBlockCount() {
+            return blockCount;
+        }
+
+        public int size() {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Położenie i podsumowanie shardu jednego chunka w pliku regionu.
+     */
+    public static final class Entry {
+
+        private final long offset;
+        private final int length;
+        private final int crc;
+        private final int blockCount;
+        // Posortowane indeksy materiałów (MaterialPalette, także NO_MATERIAL) występujących w chunku
+        private final int[] materials;
+
+        private Entry(long offset, int length, int crc, int blockCount, int[] materials) {
+            this.offset = offset;
+            this.length = length;
+            this.crc = crc;
+            this.blockCount = blockCount;
+            this.materials = materials;
+        }
+
+        public int getBlockCount() {
+            return blockCount;
+        }
+
+        /**
+         * Sprawdza czy w chunku jest blok któregoś z materiałów (indeksy MaterialPalette).
+         */
+        public boolean containsAny(BitSet materialIndices) {
+            for (int material : materials) {
+                if (material >= 0 && materialIndices.get(material)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
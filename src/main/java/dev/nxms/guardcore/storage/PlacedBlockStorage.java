@@ -0,0 +1,628 @@
+package dev.nxms.guardcore.storage;
+
+import dev.nxms.guardcore.utils.AtomicFiles;
+import dev.nxms.guardcore.utils.BlockKey;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongPredicate;
+import java.util.logging.Logger;
+
+/**
+ * Zapis i odczyt postawionych bloków na dysku.
+ *
+ * Układ katalogu:
+ * - players.dat - słownik graczy (PlayerPalette), wspólny dla wszystkich światów
+ * - materials.dat - słownik materiałów (MaterialPalette), wspólny dla wszystkich światów
+ * - &lt;świat&gt;/r.&lt;x&gt;.&lt;z&gt;.gcpb - pliki regionów (PlacedBlockRegionFile)
+ * - journal.&lt;n&gt;.log - dziennik zmian od ostatniego zrzutu (PlacedBlockJournal)
+ *
+ * Każda zmiana trafia od razu do dziennika. Shardy chunków są czytane z plików regionów
+ * pojedynczo, przy załadowaniu chunka (tabele chunków ostatnio używanych regionów są w pamięci podręcznej).
+ * Shard zmieniony i wyładowany czeka w kolejce zapisów tylko do czasu, aż wątek I/O dopisze go
+ * do pliku regionu. Kompaktowanie zapisuje zmienione shardy załadowanych chunków i usuwa
+ * segmenty dziennika, które są już w plikach regionów. Przy starcie czytane są tylko tabele
+ * chunków (liczba bloków), a dziennik jest odtwarzany na shardach z plików regionów.
+ */
+public class PlacedBlockStorage implements ShardStorage {
+
+    private static final String PALETTE_FILE = "players.dat";
+    private static final int PALETTE_MAGIC = 0x47435050; // "GCPP"
+    private static final byte PALETTE_VERSION = 1;
+    private static final String MATERIAL_PALETTE_FILE = "materials.dat";
+    private static final int MATERIAL_PALETTE_MAGIC = 0x4743504D; // "GCPM"
+
+    private static final long FLUSH_INTERVAL_MS = 100;
+    private static final long COMPACT_JOURNAL_BYTES = 4L * 1024 * 1024;
+    // Liczba regionów, których tabele chunków są trzymane w pamięci
+    private static final int HEADER_CACHE_SIZE = 64;
+
+    private final Path directory;
+    private final Logger logger;
+    private final PlacedBlockJournal journal;
+    private final ScheduledExecutorService executor;
+
+    // Shardy czekające na zapis do plików regionów (usuwane przez wątek I/O po zapisie)
+    private final Map<ChunkId, byte[]> pendingWrites = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    // Tabele chunków ostatnio używanych regionów ("świat/klucz regionu") - dostęp pod regionLock.
+    // Wątek I/O podmienia pliki regionów pod tą samą blokadą, więc odczyt chunka nie trafi na podmianę.
+    private final Object regionLock = new Object();
+    private final Map<String, PlacedBlockRegionFile.Header> headerCache =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PlacedBlockRegionFile.Header> eldest) {
+                    return size() > HEADER_CACHE_SIZE;
+                }
+            };
+
+    // Stan wątku głównego
+    private PlacedBlockStore store;
+    private CompletableFuture<Boolean> compaction;
+    private boolean journalReplayed;
+
+    // Słowniki przekazane do zapisu razem z shardami (słowniki tylko rosną)
+    private volatile List<UUID> capturedPalette = List.of();
+    private volatile List<String> capturedMaterials = List.of();
+
+    // Liczba graczy zapisana ostatnio w players.dat - wątek I/O
+    private int savedPaletteSize;
+    private int savedMaterialPaletteSize;
+
+    /**
+     * @param executor jednowątkowy wykonawca I/O (wszystkie zapisy plików idą przez niego)
+     */
+    public PlacedBlockStorage(Path directory, Logger logger, ScheduledExecutorService executor) {
+        this.directory = directory;
+        this.logger = logger;
+        this.journal = new PlacedBlockJournal(directory, logger);
+        this.executor = executor;
+        executor.scheduleWithFixedDelay(this::flushJournal, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Wczytuje słowniki i tabele chunków wszystkich regionów (liczby bloków), a potem odtwarza dziennik.
+     * Shardy nie są wczytywane - trafiają do pamięci dopiero z załadowaniem chunka.
+     */
+    public void load(PlacedBlockStore store) {
+        this.store = store;
+        store.clear();
+        savedPaletteSize = 0;
+        savedMaterialPaletteSize = 0;
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        try {
+            loadPalette(store.getPalette());
+        } catch (IOException e) {
+            logger.severe("Could not load placed blocks player palette: " + e.getMessage());
+        }
+        try {
+            loadMaterialPalette(store.getMaterialPalette());
+        } catch (IOException e) {
+            logger.severe("Could not load placed blocks material palette: " + e.getMessage());
+        }
+        capturePalettes();
+
+        int upgraded = 0;
+        try (DirectoryStream<Path> worlds = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path worldDirectory : worlds) {
+                String worldName = worldDirectory.getFileName().toString();
+                try (DirectoryStream<Path> regions = Files.newDirectoryStream(worldDirectory,
+                        "r.*" + PlacedBlockRegionFile.EXTENSION)) {
+                    for (Path region : regions) {
+                        upgraded += loadRegion(store, worldName, region);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.severe("Could not read placed blocks directory: " + e.getMessage());
+        }
+        if (upgraded > 0) {
+            logger.info("Upgraded " + upgraded + " placed blocks region file(s) to the current format.");
+        }
+
+        // Zmiany z dziennika są nakładane na shardy z plików regionów i zapisywane raz na chunk
+        store.beginBulk();
+        int replayed = journal.replay(store);
+        store.endBulk();
+        if (replayed > 0) {
+            journalReplayed = true;
+            logger.info("Replayed " + replayed + " placed block changes from journal.");
+        }
+    }
+
+    public void logPut(String worldName, long position, long placedTime, byte flags, int placer, UUID playerUUID,
+                       int material, String materialName) {
+        journal.logPut(worldName, position, placedTime, flags, placer, playerUUID, material, materialName);
+    }
+
+    public void logRemove(String worldName, long position) {
+        journal.logRemove(worldName, position);
+    }
+
+    /**
+     * Sprawdza czy bieżący segment dziennika urósł na tyle, że należy go skompaktować od razu.
+     */
+    public boolean isJournalFull() {
+        return journal.getSegmentBytes() >= COMPACT_JOURNAL_BYTES;
+    }
+
+    public long getJournalBytes() {
+        return journal.getSegmentBytes();
+    }
+
+    /**
+     * Sprawdza czy są zmiany, których nie ma jeszcze w plikach regionów
+     * (shardy czekające na zapis albo dziennik odtworzony przy starcie).
+     */
+    public boolean hasUnsavedChanges() {
+        return journalReplayed || !pendingWrites.isEmpty();
+    }
+
+    /**
+     * Liczba shardów czekających na zapis do plików regionów.
+     */
+    public int getPendingWriteCount() {
+        return pendingWrites.size();
+    }
+
+    // ===== SHARDY (wątek główny) =====
+
+    @Override
+    public byte[] readShard(String worldName, long chunkKey) {
+        byte[] pending = pendingWrites.get(new ChunkId(worldName, chunkKey));
+        if (pending != null) {
+            return pending;
+        }
+
+        long regionKey = BlockKey.regionKeyOf(chunkKey);
+        Path path = regionPath(worldName, regionKey);
+        synchronized (regionLock) {
+            String cacheKey = worldName + "/" + regionKey;
+            PlacedBlockRegionFile.Header header = headerCache.get(cacheKey);
+            if (header == PlacedBlockRegionFile.Header.EMPTY) {
+                return null;
+            }
+            if (header == null && !Files.exists(path)) {
+                headerCache.put(cacheKey, PlacedBlockRegionFile.Header.EMPTY);
+                return null;
+            }
+
+            try (FileChannel channel = PlacedBlockRegionFile.open(path)) {
+                if (header == null) {
+                    header = PlacedBlockRegionFile.readHeader(channel);
+                    headerCache.put(cacheKey, header);
+                }
+                PlacedBlockRegionFile.Entry entry = header.get(chunkKey);
+                return entry != null ? PlacedBlockRegionFile.readChunk(channel, entry) : null;
+            } catch (IOException e) {
+                logger.severe("Could not read placed blocks chunk " + BlockKey.chunkX(chunkKey) + ","
+                        + BlockKey.chunkZ(chunkKey) + " from " + path + ": " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public void writeShard(String worldName, long chunkKey, byte[] data) {
+        // Słowniki trafiają do wątku I/O przed shardami, które z nich korzystają
+        capturePalettes();
+        pendingWrites.put(new ChunkId(worldName, chunkKey), data);
+        if (flushScheduled.compareAndSet(false, true)) {
+            executor.execute(this::flushPendingWrites);
+        }
+    }
+
+    /**
+     * Iteruje po blokach świata zapisanych w plikach regionów i czekających na zapis.
+     * Działa w dowolnym wątku (budowanie kolejek znikania robi to w wątku I/O).
+     *
+     * @param materials Indeksy materiałów - chunki bez tych materiałów są pomijane (null = wszystkie)
+     * @param skipChunk Chunki pomijane (np. załadowane, przeglądane w wątku głównym)
+     */
+    public void forEachStored(String worldName, BitSet materials, LongPredicate skipChunk,
+                              PlacedBlockMap.Visitor visitor) {
+        LongObjectMap<byte[]> pending = new LongObjectMap<>();
+        for (Map.Entry<ChunkId, byte[]> entry : pendingWrites.entrySet()) {
+            if (entry.getKey().worldName.equals(worldName)) {
+                pending.put(entry.getKey().chunkKey, entry.getValue());
+            }
+        }
+
+        Path worldDirectory = directory.resolve(worldName);
+        if (Files.isDirectory(worldDirectory)) {
+            try (DirectoryStream<Path> regions = Files.newDirectoryStream(worldDirectory,
+                    "r.*" + PlacedBlockRegionFile.EXTENSION)) {
+                for (Path region : regions) {
+                    forEachStoredInRegion(region, materials, chunkKey ->
+                            pending.containsKey(chunkKey) || skipChunk.test(chunkKey), visitor);
+                }
+            } catch (IOException e) {
+                logger.warning("Could not read placed blocks directory " + worldDirectory + ": " + e.getMessage());
+            }
+        }
+
+        pending.forEach((chunkKey, data) -> {
+            if (!skipChunk.test(chunkKey)) {
+                PlacedBlockCodec.forEach(data, BlockKey.chunkX(chunkKey), BlockKey.chunkZ(chunkKey), visitor);
+            }
+        });
+    }
+
+    /**
+     * Jak forEachStored, ale w wątku I/O - kończy się po zapisach zleconych wcześniej.
+     */
+    public CompletableFuture<Void> forEachStoredAsync(String worldName, BitSet materials, LongPredicate skipChunk,
+                                                      PlacedBlockMap.Visitor visitor) {
+        return CompletableFuture.runAsync(() -> forEachStored(worldName, materials, skipChunk, visitor), executor);
+    }
+
+    /**
+     * Pod regionLock czyta tylko tabelę chunków i surowe dane wybranych chunków - dekodowanie
+     * i visitor działają już bez blokady, żeby nie wstrzymywać odczytu shardów w wątku głównym.
+     */
+    private void forEachStoredInRegion(Path path, BitSet materials, LongPredicate skipChunk,
+                                       PlacedBlockMap.Visitor visitor) {
+        LongObjectMap<byte[]> chunks = new LongObjectMap<>();
+        synchronized (regionLock) {
+            if (!Files.exists(path)) {
+                return;
+            }
+            try (FileChannel channel = PlacedBlockRegionFile.open(path)) {
+                PlacedBlockRegionFile.Header header = PlacedBlockRegionFile.readHeader(channel);
+                for (long chunkKey : chunkKeys(header)) {
+                    PlacedBlockRegionFile.Entry entry = header.get(chunkKey);
+                    if (skipChunk.test(chunkKey) || (materials != null && !entry.containsAny(materials))) {
+                        continue;
+                    }
+                    chunks.put(chunkKey, PlacedBlockRegionFile.readChunk(channel, entry));
+                }
+            } catch (IOException e) {
+                logger.warning("Could not read placed blocks region " + path + ": " + e.getMessage());
+                return;
+            }
+        }
+
+        chunks.forEach((chunkKey, data) ->
+                PlacedBlockCodec.forEach(data, BlockKey.chunkX(chunkKey), BlockKey.chunkZ(chunkKey), visitor));
+    }
+
+    private static long[] chunkKeys(PlacedBlockRegionFile.Header header) {
+        LongList keys = new LongList(header.size());
+        header.forEach((chunkKey, entry) -> keys.add(chunkKey));
+        long[] result = new long[keys.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = keys.get(i);
+        }
+        return result;
+    }
+
+    // ===== ZAPIS =====
+
+    /**
+     * Przekazuje zmienione shardy załadowanych chunków do zapisu (wątek główny) i zapisuje je w tle
+     * razem z innymi czekającymi shardami. Jeśli kompaktowanie już trwa, zwraca trwające.
+     *
+     * @return true (w przyszłości) jeśli wszystkie shardy zostały zapisane, a dziennik skompaktowany
+     */
+    public CompletableFuture<Boolean> compact(PlacedBlockStore store) {
+        if (compaction != null && !compaction.isDone()) {
+            return compaction;
+        }
+
+        store.writeDirtyChunks();
+        capturePalettes();
+        long generation = journal.rotate();
+        // Odtworzone zmiany są już w kolejce zapisów - jeśli zapis się nie uda, zostaną w niej
+        journalReplayed = false;
+
+        compaction = CompletableFuture.supplyAsync(() -> {
+            // Zapisz zaległe rekordy starych segmentów zanim zostaną usunięte
+            flushJournal();
+            if (!flushPendingWrites()) {
+                return false;
+            }
+            try {
+                journal.deleteSegmentsBefore(generation);
+            } catch (IOException e) {
+                logger.warning("Could not delete compacted placed blocks journal: " + e.getMessage());
+            }
+            return true;
+        }, executor);
+        return compaction;
+    }
+
+    /**
+     * Kończy pracę: czeka na trwające kompaktowanie, robi ostatni zapis i zamyka dziennik.
+     */
+    public void shutdown(PlacedBlockStore store) {
+        if (compaction != null) {
+            compaction.join();
+        }
+        compact(store).join();
+
+        CompletableFuture.runAsync(() -> {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.warning("Could not close placed blocks journal: " + e.getMessage());
+            }
+        }, executor).join();
+    }
+
+    private void flushJournal() {
+        try {
+            journal.flush();
+        } catch (IOException e) {
+            logger.severe("Could not write placed blocks journal: " + e.getMessage());
+        }
+    }
+
+    private void capturePalettes() {
+        if (store == null) {
+            return;
+        }
+        if (store.getPalette().size() != capturedPalette.size()) {
+            capturedPalette = store.getPalette().toList();
+        }
+        if (store.getMaterialPalette().size() != capturedMaterials.size()) {
+            capturedMaterials = store.getMaterialPalette().toList();
+        }
+    }
+
+    /**
+     * Dopisuje czekające shardy do plików regionów (wątek I/O), każdy region zapisywany raz.
+     * Shardy, których zapis się nie udał, zostają w kolejce do następnej próby.
+     *
+     * @return true jeśli zapisano wszystkie czekające shardy
+     */
+    private boolean flushPendingWrites() {
+        flushScheduled.set(false);
+        if (pendingWrites.isEmpty()) {
+            return true;
+        }
+
+        // Świat -> klucz regionu -> shardy do zapisania
+        Map<String, Map<Long, Map<ChunkId, byte[]>>> regions = new HashMap<>();
+        for (Map.Entry<ChunkId, byte[]> entry : pendingWrites.entrySet()) {
+            ChunkId id = entry.getKey();
+            regions.computeIfAbsent(id.worldName, name -> new HashMap<>())
+                    .computeIfAbsent(BlockKey.regionKeyOf(id.chunkKey), key -> new HashMap<>())
+                    .put(id, entry.getValue());
+        }
+
+        try {
+            Files.createDirectories(directory);
+            // Słowniki odczytane po shardach - zawierają wszystkie użyte w nich indeksy
+            savePalette(capturedPalette);
+            saveMaterialPalette(capturedMaterials);
+        } catch (IOException e) {
+            // Bez słowników indeksy graczy i materiałów w regionach byłyby nieczytelne - nie zapisuj regionów
+            logger.severe("Could not save placed blocks palette: " + e.getMessage());
+            return false;
+        }
+
+        boolean success = true;
+        for (Map.Entry<String, Map<Long, Map<ChunkId, byte[]>>> world : regions.entrySet()) {
+            for (Map.Entry<Long, Map<ChunkId, byte[]>> region : world.getValue().entrySet()) {
+                try {
+                    writeRegion(world.getKey(), region.getKey(), region.getValue());
+                    region.getValue().forEach(pendingWrites::remove);
+                } catch (IOException e) {
+                    logger.severe("Could not save placed blocks region "
+                            + regionPath(world.getKey(), region.getKey()) + ": " + e.getMessage());
+                    success = false;
+                }
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Nakłada shardy na plik regionu i podmienia go (wątek I/O).
+     */
+    private void writeRegion(String worldName, long regionKey, Map<ChunkId, byte[]> shards) throws IOException {
+        Path path = regionPath(worldName, regionKey);
+        LongObjectMap<byte[]> chunks = new LongObjectMap<>();
+        if (Files.exists(path)) {
+            try {
+                PlacedBlockRegionFile.read(path, chunks::put);
+            } catch (IOException e) {
+                // Zachowaj uszkodzony plik do ręcznej analizy, region zostanie zapisany od nowa
+                logger.severe("Could not read placed blocks region " + path + ", moving it aside: " + e.getMessage());
+                chunks.clear();
+                synchronized (regionLock) {
+                    moveAside(path);
+                }
+            }
+        }
+        shards.forEach((id, data) -> {
+            if (PlacedBlockCodec.peekCount(data) == 0) {
+                chunks.remove(id.chunkKey);
+            } else {
+                chunks.put(id.chunkKey, data);
+            }
+        });
+
+        String cacheKey = worldName + "/" + regionKey;
+        if (chunks.isEmpty()) {
+            synchronized (regionLock) {
+                Files.deleteIfExists(path);
+                headerCache.put(cacheKey, PlacedBlockRegionFile.Header.EMPTY);
+            }
+            return;
+        }
+        Files.createDirectories(path.getParent());
+        Path temp = PlacedBlockRegionFile.writeTemp(path, regionKey, chunks);
+        synchronized (regionLock) {
+            AtomicFiles.replace(temp, path);
+            headerCache.remove(cacheKey);
+        }
+    }
+
+    // ===== ODCZYT PRZY STARCIE =====
+
+    /**
+     * Czyta tabelę chunków regionu (plik w starszej wersji jest najpierw przepisywany).
+     *
+     * @return 1 jeśli plik został przepisany do bieżącego formatu
+     */
+    private int loadRegion(PlacedBlockStore store, String worldName, Path path) {
+        try {
+            int upgraded = PlacedBlockRegionFile.upgrade(path) ? 1 : 0;
+            try (FileChannel channel = PlacedBlockRegionFile.open(path)) {
+                store.addStoredBlocks(worldName, PlacedBlockRegionFile.readHeader(channel).getBlockCount());
+            }
+            return upgraded;
+        } catch (IOException e) {
+            // Zachowaj uszkodzony plik do ręcznej analizy, żeby nie został nadpisany
+            logger.severe("Could not load placed blocks region " + path + ": " + e.getMessage());
+            moveAside(path);
+            return 0;
+        }
+    }
+
+    private static void moveAside(Path path) {
+        try {
+            Files.move(path, path.resolveSibling(path.getFileName() + ".corrupt"),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ignored) {}
+    }
+
+    private Path regionPath(String worldName, long regionKey) {
+        return directory.resolve(worldName).resolve(PlacedBlockRegionFile.fileName(regionKey));
+    }
+
+    private void loadPalette(PlayerPalette palette) throws IOException {
+        Path path = directory.resolve(PALETTE_FILE);
+        if (!Files.exists(path)) {
+            return;
+        }
+        ByteBuffer buffer = AtomicFiles.readFully(path);
+        if (buffer.remaining() < 5 || buffer.getInt() != PALETTE_MAGIC) {
+            throw new IOException("Invalid palette file header");
+        }
+        byte version = buffer.get();
+        if (version != PALETTE_VERSION) {
+            throw new IOException("Unsupported palette file version: " + version);
+        }
+        int count = PlacedBlockCodec.readVarInt(buffer);
+        for (int i = 0; i < count; i++) {
+            palette.indexOf(new UUID(buffer.getLong(), buffer.getLong()));
+        }
+        savedPaletteSize = palette.size();
+    }
+
+    private void savePalette(List<UUID> palette) throws IOException {
+        int size = palette.size();
+        if (size == savedPaletteSize) {
+            return;
+        }
+        ByteArrayOutputStream header = new ByteArrayOutputStream(10);
+        header.write(PALETTE_MAGIC >>> 24);
+        header.write(PALETTE_MAGIC >>> 16);
+        header.write(PALETTE_MAGIC >>> 8);
+        header.write(PALETTE_MAGIC);
+        header.write(PALETTE_VERSION);
+        PlacedBlockCodec.writeVarInt(header, size);
+
+        ByteBuffer players = ByteBuffer.allocate(size * 16);
+        for (UUID uuid : palette) {
+            players.putLong(uuid.getMostSignificantBits());
+            players.putLong(uuid.getLeastSignificantBits());
+        }
+        players.flip();
+
+        AtomicFiles.write(directory.resolve(PALETTE_FILE),
+                ByteBuffer.wrap(header.toByteArray()), players);
+        savedPaletteSize = size;
+    }
+
+    private void loadMaterialPalette(MaterialPalette palette) throws IOException {
+        Path path = directory.resolve(MATERIAL_PALETTE_FILE);
+        if (!Files.exists(path)) {
+            return;
+        }
+        ByteBuffer buffer = AtomicFiles.readFully(path);
+        if (buffer.remaining() < 5 || buffer.getInt() != MATERIAL_PALETTE_MAGIC) {
+            throw new IOException("Invalid material palette file header");
+        }
+        byte version = buffer.get();
+        if (version != PALETTE_VERSION) {
+            throw new IOException("Unsupported material palette file version: " + version);
+        }
+        int count = PlacedBlockCodec.readVarInt(buffer);
+        for (int i = 0; i < count; i++) {
+            byte[] name = new byte[PlacedBlockCodec.readVarInt(buffer)];
+            buffer.get(name);
+            palette.indexOf(new String(name, StandardCharsets.UTF_8));
+        }
+        savedMaterialPaletteSize = palette.size();
+    }
+
+    private void saveMaterialPalette(List<String> materials) throws IOException {
+        int size = materials.size();
+        if (size == savedMaterialPaletteSize) {
+            return;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size * 12 + 10);
+        out.write(MATERIAL_PALETTE_MAGIC >>> 24);
+        out.write(MATERIAL_PALETTE_MAGIC >>> 16);
+        out.write(MATERIAL_PALETTE_MAGIC >>> 8);
+        out.write(MATERIAL_PALETTE_MAGIC);
+        out.write(PALETTE_VERSION);
+        PlacedBlockCodec.writeVarInt(out, size);
+        for (String material : materials) {
+            byte[] name = material.getBytes(StandardCharsets.UTF_8);
+            PlacedBlockCodec.writeVarInt(out, name.length);
+            out.write(name, 0, name.length);
+        }
+
+        AtomicFiles.write(directory.resolve(MATERIAL_PALETTE_FILE), ByteBuffer.wrap(out.toByteArray()));
+        savedMaterialPaletteSize = size;
+    }
+
+    private static final class ChunkId {
+        final String worldName;
+        final long chunkKey;
+
+        ChunkId(String worldName, long chunkKey) {
+            this.worldName = worldName;
+            this.chunkKey = chunkKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ChunkId)) return false;
+            ChunkId other = (ChunkId) o;
+            return chunkKey == other.chunkKey && worldName.equals(other.worldName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * worldName.hashCode() + Long.hashCode(chunkKey);
+        }
+    }
+}
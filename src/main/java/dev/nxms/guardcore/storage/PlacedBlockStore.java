@@ -0,0 +1,177 @@
+package dev.nxms.guardcore.storage;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+
+import org.bukkit.Chunk;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rejestr postawionych bloków wszystkich światów.
+ * W pamięci trzymane są tylko shardy załadowanych chunków, reszta jest w plikach regionów (ShardStorage).
+ */
+public class PlacedBlockStore {
+
+    private final ShardStorage storage;
+
+    // Klucz: nazwa świata
+    private final Map<String, PlacedBlockWorld> worlds = new HashMap<>();
+    private final PlayerPalette palette = new PlayerPalette();
+    private final MaterialPalette materialPalette = new MaterialPalette();
+    private boolean bulk;
+
+    public PlacedBlockStore(ShardStorage storage) {
+        this.storage = storage;
+    }
+
+    public PlayerPalette getPalette() {
+        return palette;
+    }
+
+    public MaterialPalette getMaterialPalette() {
+        return materialPalette;
+    }
+
+    public void put(String worldName, long position, long placedTime, byte flags, int placer, int material) {
+        getOrCreateWorld(worldName).put(position, placedTime, flags, placer, material);
+    }
+
+    public boolean remove(String worldName, long position) {
+        PlacedBlockWorld world = worlds.get(worldName);
+        return world != null && world.remove(position);
+    }
+
+    public boolean contains(String worldName, long position) {
+        PlacedBlockMap shard = getShard(worldName, position);
+        return shard != null && shard.contains(position);
+    }
+
+    /**
+     * Zwraca shard chunka zawierającego pozycję (lub null).
+     * Shard wyładowanego chunka jest tymczasową kopią tylko do odczytu.
+     */
+    public PlacedBlockMap getShard(String worldName, long position) {
+        return getOrCreateWorld(worldName).getShard(position);
+    }
+
+    public PlacedBlockWorld getWorld(String worldName) {
+        return worlds.get(worldName);
+    }
+
+    public Collection<PlacedBlockWorld> getWorlds() {
+        return Collections.unmodifiableCollection(worlds.values());
+    }
+
+    public void onChunkLoad(String worldName, int chunkX, int chunkZ) {
+        getOrCreateWorld(worldName).loadChunk(chunkX, chunkZ);
+    }
+
+    public void onChunkUnload(String worldName, int chunkX, int chunkZ) {
+        PlacedBlockWorld world = worlds.get(worldName);
+        if (world != null) {
+            world.unloadChunk(chunkX, chunkZ);
+        }
+    }
+
+    /**
+     * Dodaje bloki zapisane w plikach regionów świata (przy wczytywaniu).
+     */
+    public void addStoredBlocks(String worldName, int count) {
+        getOrCreateWorld(worldName).addStoredBlocks(count);
+    }
+
+    /**
+     * Wczytuje shardy chunków załadowanych przed rejestracją listenerów (np. chunki spawnu).
+     */
+    public void syncLoadedChunks() {
+        for (World bukkitWorld : Bukkit.getWorlds()) {
+            PlacedBlockWorld world = getOrCreateWorld(bukkitWorld.getName());
+            for (Chunk chunk : bukkitWorld.getLoadedChunks()) {
+                world.loadChunk(chunk.getX(), chunk.getZ());
+            }
+        }
+    }
+
+    /**
+     * Zapisuje i zwalnia shardy wszystkich chunków świata (np. po jego wyładowaniu).
+     */
+    public void unloadWorld(String worldName) {
+        PlacedBlockWorld world = worlds.get(worldName);
+        if (world != null) {
+            world.unloadAll();
+        }
+    }
+
+    /**
+     * Zaczyna operację zbiorczą - zmiany w wyładowanych chunkach są zapisywane raz, w endBulk.
+     */
+    public void beginBulk() {
+        bulk = true;
+        for (PlacedBlockWorld world : worlds.values()) {
+            world.beginBulk();
+        }
+    }
+
+    public void endBulk() {
+        bulk = false;
+        for (PlacedBlockWorld world : worlds.values()) {
+            world.endBulk();
+        }
+    }
+
+    public boolean hasDirtyChunks() {
+        for (PlacedBlockWorld world : worlds.values()) {
+            if (world.hasDirtyChunks()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Przekazuje zmienione shardy załadowanych chunków do zapisu.
+     */
+    public void writeDirtyChunks() {
+        for (PlacedBlockWorld world : worlds.values()) {
+            world.writeDirtyChunks();
+        }
+    }
+
+    public int size() {
+        int count = 0;
+        for (PlacedBlockWorld world : worlds.values()) {
+            count += world.size();
+        }
+        return count;
+    }
+
+    public int getLoadedBlockCount() {
+        int count = 0;
+        for (PlacedBlockWorld world : worlds.values()) {
+            count += world.getLoadedBlockCount();
+        }
+        return count;
+    }
+
+    public void clear() {
+        worlds.clear();
+        palette.clear();
+        materialPalette.clear();
+    }
+
+    private PlacedBlockWorld getOrCreateWorld(String worldName) {
+        PlacedBlockWorld world = worlds.get(worldName);
+        if (world == null) {
+            world = new PlacedBlockWorld(worldName, storage);
+            if (bulk) {
+                world.beginBulk();
+            }
+            worlds.put(worldName, world);
+        }
+        return world;
+    }
+}
@@ -0,0 +1,289 @@
+package dev.nxms.guardcore.storage;
+
+import dev.nxms.guardcore.utils.BlockKey;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Postawione bloki jednego świata podzielone na shardy per chunk.
+ *
+ * W pamięci są tylko shardy załadowanych chunków - shard jest czytany z pliku regionu
+ * przy załadowaniu chunka, a przy wyładowaniu (jeśli się zmienił) zapisywany z powrotem i zwalniany.
+ * Odczyt bloku w wyładowanym chunku dekoduje shard do tymczasowej mapy, a zmiana
+ * od razu zapisuje przekodowany shard - chunk nie zostaje w pamięci.
+ */
+public class PlacedBlockWorld {
+
+    // Shard załadowanego chunka bez bloków - wspólny, nigdy nie modyfikowany
+    private static final PlacedBlockMap NO_BLOCKS = new PlacedBlockMap(0);
+
+    private final String name;
+    private final ShardStorage storage;
+
+    // Klucz: BlockKey.chunkKey(x, z) - wpis dla każdego załadowanego chunka
+    private final LongObjectMap<PlacedBlockMap> loadedShards = new LongObjectMap<>();
+    // Załadowane chunki zmienione od ostatniego zapisu
+    private final Set<Long> dirtyChunks = new HashSet<>();
+    // Shardy wyładowanych chunków zmieniane w operacji zbiorczej (beginBulk - endBulk)
+    private LongObjectMap<PlacedBlockMap> bulkShards;
+
+    private int loadedBlocks;
+    // Bloki w chunkach, których shardy nie są w pamięci
+    private int storedBlocks;
+
+    public PlacedBlockWorld(String name, ShardStorage storage) {
+        this.name = name;
+        this.storage = storage;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void put(long position, long placedTime, byte flags, int placer, int material) {
+        long chunkKey = BlockKey.chunkKeyOf(position);
+        PlacedBlockMap shard = loadedShards.get(chunkKey);
+        if (shard == null) {
+            PlacedBlockMap stored = storedShard(chunkKey, true);
+            int before = stored.size();
+            stored.put(position, placedTime, flags, placer, material);
+            storedBlocks += stored.size() - before;
+            storeShard(chunkKey, stored);
+            return;
+        }
+
+        if (shard == NO_BLOCKS) {
+            shard = new PlacedBlockMap();
+            loadedShards.put(chunkKey, shard);
+        }
+        int before = shard.size();
+        shard.put(position, placedTime, flags, placer, material);
+        loadedBlocks += shard.size() - before;
+        dirtyChunks.add(chunkKey);
+    }
+
+    public boolean remove(long position) {
+        long chunkKey = BlockKey.chunkKeyOf(position);
+        PlacedBlockMap shard = loadedShards.get(chunkKey);
+        if (shard == null) {
+            PlacedBlockMap stored = storedShard(chunkKey, false);
+            if (stored == null || !stored.remove(position)) {
+                return false;
+            }
+            storedBlocks--;
+            storeShard(chunkKey, stored);
+            return true;
+        }
+
+        if (!shard.remove(position)) {
+            return false;
+        }
+        loadedBlocks--;
+        dirtyChunks.add(chunkKey);
+        return true;
+    }
+
+    public boolean contains(long position) {
+        PlacedBlockMap shard = getShard(position);
+        return shard != null && shard.contains(position);
+    }
+
+    /**
+     * Zwraca shard zawierający pozycję (lub null jeśli chunk nie ma bloków).
+     * Shard wyładowanego chunka jest tymczasową kopią tylko do odczytu.
+     */
+    public PlacedBlockMap getShard(long position) {
+        return getChunkShard(BlockKey.chunkKeyOf(position));
+    }
+
+    /**
+     * Zwraca shard chunka (lub null jeśli chunk nie ma bloków).
+     * Shard wyładowanego chunka jest tymczasową kopią tylko do odczytu.
+     */
+    public PlacedBlockMap getChunkShard(long chunkKey) {
+        PlacedBlockMap shard = loadedShards.get(chunkKey);
+        if (shard != null) {
+            return shard;
+        }
+        return storedShard(chunkKey, false);
+    }
+
+    /**
+     * Wczytuje shard chunka po jego załadowaniu.
+     */
+    public void loadChunk(int chunkX, int chunkZ) {
+        long chunkKey = BlockKey.chunkKey(chunkX, chunkZ);
+        if (loadedShards.containsKey(chunkKey)) {
+            return;
+        }
+
+        PlacedBlockMap shard = bulkShards != null ? bulkShards.remove(chunkKey) : null;
+        if (shard != null) {
+            // Zmiany z operacji zbiorczej nie zostały jeszcze zapisane
+            dirtyChunks.add(chunkKey);
+        } else {
+            shard = storedShard(chunkKey, false);
+        }
+        if (shard == null || shard.isEmpty()) {
+            shard = NO_BLOCKS;
+        }
+        storedBlocks -= shard.size();
+        loadedBlocks += shard.size();
+        loadedShards.put(chunkKey, shard);
+    }
+
+    /**
+     * Zapisuje zmieniony shard chunka po jego wyładowaniu i zwalnia go z pamięci.
+     */
+    public void unloadChunk(int chunkX, int chunkZ) {
+        unload(BlockKey.chunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Wyładowuje wszystkie chunki świata (np. po wyładowaniu świata).
+     */
+    public void unloadAll() {
+        for (long chunkKey : loadedShards.keys()) {
+            unload(chunkKey);
+        }
+    }
+
+    public boolean isChunkLoaded(long chunkKey) {
+        return loadedShards.containsKey(chunkKey);
+    }
+
+    /**
+     * Zaczyna operację zbiorczą (np. odtwarzanie dziennika, import): zmiany w wyładowanych
+     * chunkach są zbierane w pamięci i zapisywane raz, w endBulk.
+     */
+    public void beginBulk() {
+        if (bulkShards == null) {
+            bulkShards = new LongObjectMap<>();
+        }
+    }
+
+    public void endBulk() {
+        if (bulkShards == null) {
+            return;
+        }
+        LongObjectMap<PlacedBlockMap> shards = bulkShards;
+        bulkShards = null;
+        shards.forEach((chunkKey, shard) -> storage.writeShard(name, chunkKey, PlacedBlockCodec.encode(shard)));
+    }
+
+    /**
+     * Dodaje bloki zapisane w plikach regionów (liczone z tabel chunków przy wczytywaniu).
+     */
+    public void addStoredBlocks(int count) {
+        storedBlocks += count;
+    }
+
+    public boolean hasDirtyChunks() {
+        return !dirtyChunks.isEmpty();
+    }
+
+    /**
+     * Przekazuje zmienione shardy załadowanych chunków do zapisu i czyści listę zmian.
+     */
+    public void writeDirtyChunks() {
+        for (Long chunkKey : dirtyChunks) {
+            PlacedBlockMap shard = loadedShards.get(chunkKey);
+            if (shard != null) {
+                storage.writeShard(name, chunkKey, PlacedBlockCodec.encode(shard));
+            }
+        }
+        dirtyChunks.clear();
+    }
+
+    /**
+     * Iteruje tylko po blokach w załadowanych chunkach.
+     */
+    public void forEachLoaded(PlacedBlockMap.Visitor visitor) {
+        loadedShards.forEachValue(shard -> shard.forEach(visitor));
+    }
+
+    /**
+     * Iteruje po załadowanych shardach z blokami (klucz chunka -> shard).
+     */
+    public void forEachLoadedShard(LongObjectMap.EntryVisitor<PlacedBlockMap> visitor) {
+        loadedShards.forEach((chunkKey, shard) -> {
+            if (!shard.isEmpty()) {
+                visitor.visit(chunkKey, shard);
+            }
+        });
+    }
+
+    /**
+     * Zwraca klucze załadowanych chunków, które mają bloki.
+     */
+    public long[] getLoadedShardKeys() {
+        LongList keys = new LongList(loadedShards.size());
+        forEachLoadedShard((chunkKey, shard) -> keys.add(chunkKey));
+        long[] result = new long[keys.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = keys.get(i);
+        }
+        return result;
+    }
+
+    public int size() {
+        return loadedBlocks + storedBlocks;
+    }
+
+    public int getLoadedBlockCount() {
+        return loadedBlocks;
+    }
+
+    public int getLoadedShardCount() {
+        int[] count = new int[1];
+        forEachLoadedShard((chunkKey, shard) -> count[0]++);
+        return count[0];
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    private void unload(long chunkKey) {
+        PlacedBlockMap shard = loadedShards.remove(chunkKey);
+        if (shard == null) {
+            return;
+        }
+        loadedBlocks -= shard.size();
+        storedBlocks += shard.size();
+        if (dirtyChunks.remove(chunkKey)) {
+            storage.writeShard(name, chunkKey, PlacedBlockCodec.encode(shard));
+        }
+    }
+
+    /**
+     * Shard chunka, który nie jest w pamięci: z operacji zbiorczej albo zdekodowany z pliku regionu.
+     *
+     * @param create true = pusty shard, jeśli chunk nie ma bloków
+     */
+    private PlacedBlockMap storedShard(long chunkKey, boolean create) {
+        if (bulkShards != null) {
+            PlacedBlockMap shard = bulkShards.get(chunkKey);
+            if (shard != null) {
+                return shard;
+            }
+        }
+        byte[] data = storage.readShard(name, chunkKey);
+        if (data != null) {
+            return PlacedBlockCodec.decode(data, BlockKey.chunkX(chunkKey), BlockKey.chunkZ(chunkKey));
+        }
+        return create ? new PlacedBlockMap() : null;
+    }
+
+    /**
+     * Zapisuje zmieniony shard chunka, który nie jest w pamięci (w operacji zbiorczej - w endBulk).
+     */
+    private void storeShard(long chunkKey, PlacedBlockMap shard) {
+        if (bulkShards != null) {
+            bulkShards.put(chunkKey, shard);
+        } else {
+            storage.writeShard(name, chunkKey, PlacedBlockCodec.encode(shard));
+        }
+    }
+}
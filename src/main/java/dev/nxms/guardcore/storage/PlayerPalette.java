@@ -0,0 +1,61 @@
+package dev.nxms.guardcore.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Słownik UUID graczy -> indeks int.
+ * Pozwala przechowywać gracza przy każdym bloku jako int zamiast obiektu UUID.
+ */
+public class PlayerPalette {
+
+    public static final int NO_PLAYER = -1;
+
+    private final List<UUID> players = new ArrayList<>();
+    private final Map<UUID, Integer> indices = new HashMap<>();
+
+    /**
+     * Zwraca indeks gracza, dodając go do słownika jeśli jeszcze go nie ma.
+     */
+    public int indexOf(UUID uuid) {
+        if (uuid == null) {
+            return NO_PLAYER;
+        }
+        Integer index = indices.get(uuid);
+        if (index == null) {
+            index = players.size();
+            players.add(uuid);
+            indices.put(uuid, index);
+        }
+        return index;
+    }
+
+    /**
+     * Zwraca UUID gracza dla indeksu lub null.
+     */
+    public UUID get(int index) {
+        if (index < 0 || index >= players.size()) {
+            return null;
+        }
+        return players.get(index);
+    }
+
+    /**
+     * Zwraca kopię słownika (indeks -> UUID), np. do zapisu w tle.
+     */
+    public List<UUID> toList() {
+        return new ArrayList<>(players);
+    }
+
+    public int size() {
+        return players.size();
+    }
+
+    public void clear() {
+        players.clear();
+        indices.clear();
+    }
+}
@@ -0,0 +1,19 @@
+package dev.nxms.guardcore.storage;
+
+/**
+ * Miejsce przechowywania shardów chunków, które nie są w pamięci (pliki regionów).
+ * Wywoływane z wątku głównego.
+ */
+public interface ShardStorage {
+
+    /**
+     * Zwraca zakodowany shard chunka (PlacedBlockCodec) lub null, jeśli chunk nie ma zapisanych bloków.
+     */
+    byte[] readShard(String worldName, long chunkKey);
+
+    /**
+     * Zapisuje zakodowany shard chunka w tle. Shard bez wpisów usuwa chunk z pliku regionu.
+     * Do czasu zapisu readShard zwraca te dane.
+     */
+    void writeShard(String worldName, long chunkKey, byte[] data);
+}
@@ -0,0 +1,68 @@
+package dev.nxms.guardcore.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Odczyt i atomowy zapis plików przez kanały NIO.
+ */
+public class AtomicFiles {
+
+    /**
+     * Wczytuje cały plik do bufora.
+     */
+    public static ByteBuffer readFully(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large: " + size + " bytes");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // czytaj do końca pliku
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Zapisuje bufory do pliku tymczasowego, wykonuje fsync i podmienia plik docelowy atomowo.
+     * Po awarii w trakcie zapisu zostaje stara albo nowa wersja pliku, nigdy połowa.
+     */
+    public static void write(Path path, ByteBuffer... buffers) throws IOException {
+        replace(writeTemp(path, buffers), path);
+    }
+
+    /**
+     * Zapisuje bufory do pliku tymczasowego obok pliku docelowego i wykonuje fsync.
+     * Plik docelowy podmienia dopiero replace (np. pod blokadą, gdy plik czytają inne wątki).
+     *
+     * @return Ścieżka pliku tymczasowego
+     */
+    public static Path writeTemp(Path path, ByteBuffer... buffers) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (ByteBuffer buffer : buffers) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            channel.force(true);
+        }
+        return temp;
+    }
+
+    /**
+     * Podmienia plik docelowy plikiem tymczasowym z writeTemp (atomowo).
+     */
+    public static void replace(Path temp, Path path) throws IOException {
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,72 @@
+package dev.nxms.guardcore.utils;
+
+import org.bukkit.Location;
+
+/**
+ * Narzędzie do pakowania współrzędnych bloku do jednej liczby long.
+ * Układ bitów jak w Minecraft: x (26 bitów) | z (26 bitów) | y (12 bitów).
+ */
+public class BlockKey {
+
+    private static final int XZ_BITS = 26;
+    private static final int Y_BITS = 12;
+    private static final long XZ_MASK = (1L << XZ_BITS) - 1;
+    private static final long Y_MASK = (1L << Y_BITS) - 1;
+    private static final int X_SHIFT = XZ_BITS + Y_BITS;
+    private static final int Z_SHIFT = Y_BITS;
+
+    /**
+     * Pakuje współrzędne bloku do liczby long.
+     */
+    public static long pack(int x, int y, int z) {
+        return ((x & XZ_MASK) << X_SHIFT) | ((z & XZ_MASK) << Z_SHIFT) | (y & Y_MASK);
+    }
+
+    /**
+     * Pakuje współrzędne bloku z lokalizacji.
+     */
+    public static long pack(Location location) {
+        return pack(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    public static int unpackX(long packed) {
+        return (int) (packed >> X_SHIFT);
+    }
+
+    public static int unpackY(long packed) {
+        return (int) (packed << (64 - Y_BITS) >> (64 - Y_BITS));
+    }
+
+    public static int unpackZ(long packed) {
+        return (int) (packed << (64 - X_SHIFT) >> (64 - XZ_BITS));
+    }
+
+    /**
+     * Pakuje współrzędne chunka (układ jak Chunk#getChunkKey w Paper).
+     */
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkZ << 32) | (chunkX & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Zwraca klucz chunka, w którym leży spakowana pozycja bloku.
+     */
+    public static long chunkKeyOf(long packed) {
+        return chunkKey(unpackX(packed) >> 4, unpackZ(packed) >> 4);
+    }
+
+    public static int chunkX(long chunkKey) {
+        return (int) chunkKey;
+    }
+
+    public static int chunkZ(long chunkKey) {
+        return (int) (chunkKey >>> 32);
+    }
+
+    /**
+     * Zwraca klucz regionu (32x32 chunki), w którym leży chunk. Układ jak w chunkKey.
+     */
+    public static long regionKeyOf(long chunkKey) {
+        return chunkKey(chunkX(chunkKey) >> 5, chunkZ(chunkKey) >> 5);
+    }
+}
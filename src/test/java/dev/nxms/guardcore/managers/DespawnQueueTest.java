@@ -0,0 +1,74 @@
+package dev.nxms.guardcore.managers;
+
+import dev.nxms.guardcore.storage.LongList;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class DespawnQueueTest {
+
+    private static final long NOW = 100_000L;
+
+    @Test
+    void pollDueReturnsOldestFirstWithinLimit() {
+        DespawnQueue queue = new DespawnQueue();
+        queue.add(5_000L, 2);
+        queue.add(1_000L, 1);
+        queue.add(NOW + 1_000L, 3);
+
+        assertEquals(1, poll(queue, 1, 1L));
+        assertEquals(1, poll(queue, 10, 2L));
+        assertFalse(queue.hasDue(NOW));
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    void partialPollThenEarlierAdd() {
+        DespawnQueue queue = new DespawnQueue();
+        for (long position = 10; position < 15; position++) {
+            queue.add(50_000L, position);
+        }
+        assertEquals(2, poll(queue, 2, 10L, 11L));
+
+        // Wcześniejszy kubełek przed częściowo pobranym
+        queue.add(20_000L, 1L);
+        queue.add(20_000L, 2L);
+        assertEquals(7 - 2, queue.size());
+
+        assertEquals(5, poll(queue, 100, 1L, 2L, 12L, 13L, 14L));
+        assertEquals(0, queue.size());
+        assertFalse(queue.hasDue(Long.MAX_VALUE));
+    }
+
+    @Test
+    void partialPollThenEarlierAddAll() {
+        DespawnQueue queue = new DespawnQueue();
+        for (long position = 10; position < 15; position++) {
+            queue.add(50_000L, position);
+        }
+        assertEquals(3, poll(queue, 3, 10L, 11L, 12L));
+
+        DespawnQueue other = new DespawnQueue();
+        other.add(20_000L, 1L);
+        other.add(50_000L, 15L);
+        queue.addAll(other);
+        assertEquals(4, queue.size());
+
+        assertEquals(4, poll(queue, 100, 1L, 13L, 14L, 15L));
+        assertEquals(0, queue.size());
+    }
+
+    /**
+     * Pobiera co najwyżej limit wygasłych bloków i sprawdza ich kolejność.
+     */
+    private static int poll(DespawnQueue queue, int limit, long... expected) {
+        LongList polled = new LongList();
+        int count = queue.pollDue(NOW, limit, polled::add);
+        assertEquals(expected.length, polled.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], polled.get(i));
+        }
+        return count;
+    }
+}
@@ -0,0 +1,80 @@
+package dev.nxms.guardcore.storage;
+
+import dev.nxms.guardcore.utils.BlockKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongObjectMapTest {
+
+    @Test
+    void putReturnsPreviousValue() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        assertNull(map.put(5L, "a"));
+        assertEquals("a", map.put(5L, "b"));
+        assertEquals("b", map.get(5L));
+        assertEquals(1, map.size());
+        assertThrows(IllegalArgumentException.class, () -> map.put(6L, null));
+    }
+
+    @Test
+    void removeShiftsFollowingEntriesBack() {
+        // Klucze chunków z sąsiednich regionów, także ujemne
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        for (int x = -20; x < 20; x++) {
+            for (int z = -20; z < 20; z++) {
+                long key = BlockKey.chunkKey(x, z);
+                map.put(key, key);
+                expected.put(key, key);
+            }
+        }
+
+        for (int x = -20; x < 20; x++) {
+            for (int z = -20; z < 20; z++) {
+                if (((x + z) & 1) == 0) {
+                    long key = BlockKey.chunkKey(x, z);
+                    assertEquals(key, map.remove(key));
+                    assertNull(map.remove(key));
+                    expected.remove(key);
+                }
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int x = -20; x < 20; x++) {
+            for (int z = -20; z < 20; z++) {
+                long key = BlockKey.chunkKey(x, z);
+                assertEquals(expected.containsKey(key), map.containsKey(key));
+                assertEquals(expected.get(key), map.get(key));
+            }
+        }
+
+        long[] keys = map.keys();
+        Arrays.sort(keys);
+        long[] expectedKeys = expected.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        assertTrue(Arrays.equals(expectedKeys, keys));
+    }
+
+    @Test
+    void removingAllEntriesLeavesEmptyMap() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        for (long key = -50; key < 50; key++) {
+            map.put(key, "v" + key);
+        }
+        for (long key = -50; key < 50; key++) {
+            assertEquals("v" + key, map.remove(key));
+        }
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.keys().length);
+        assertFalse(map.containsKey(0L));
+    }
+}
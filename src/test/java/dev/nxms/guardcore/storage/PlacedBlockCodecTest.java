@@ -0,0 +1,84 @@
+package dev.nxms.guardcore.storage;
+
+import dev.nxms.guardcore.utils.BlockKey;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlacedBlockCodecTest {
+
+    @Test
+    void encodeDecodeRoundTripsNegativeChunk() {
+        int chunkX = -3;
+        int chunkZ = -1;
+        PlacedBlockMap shard = new PlacedBlockMap();
+        // Rogi chunka, skrajne wysokości i czasy w dowolnej kolejności (delta czasu bywa ujemna)
+        shard.put(BlockKey.pack(-48, -64, -16), 1_700_000_000_000L, PlacedBlockMap.FLAG_TRACK_DESPAWN, 0, 2);
+        shard.put(BlockKey.pack(-33, 319, -1), 5L, PlacedBlockMap.FLAG_BYPASS_DESPAWN, PlayerPalette.NO_PLAYER, 0);
+        shard.put(BlockKey.pack(-40, -2048, -8), 0L, (byte) 0, 7, MaterialPalette.NO_MATERIAL);
+        shard.put(BlockKey.pack(-40, 2047, -8), Long.MAX_VALUE / 2, (byte) 3, 1_000_000, 300);
+
+        byte[] data = PlacedBlockCodec.encode(shard);
+        assertEquals(shard.size(), PlacedBlockCodec.peekCount(data));
+
+        PlacedBlockMap decoded = PlacedBlockCodec.decode(data, chunkX, chunkZ);
+        assertSameEntries(shard, decoded);
+        assertArrayEquals(new int[]{MaterialPalette.NO_MATERIAL, 0, 2, 300}, PlacedBlockCodec.materialsOf(data));
+    }
+
+    @Test
+    void emptyShardRoundTrips() {
+        byte[] data = PlacedBlockCodec.encode(new PlacedBlockMap());
+        assertEquals(0, PlacedBlockCodec.peekCount(data));
+        assertTrue(PlacedBlockCodec.decode(data, 0, 0).isEmpty());
+        assertEquals(0, PlacedBlockCodec.materialsOf(data).length);
+    }
+
+    @Test
+    void upgradeLegacyAddsMissingMaterials() {
+        long first = BlockKey.pack(1, 64, 2);
+        long second = BlockKey.pack(15, 70, 15);
+        // Format wersji 1: liczba, potem pozycja lokalna (delta), czas (delta zigzag), flagi, gracz + 1
+        ByteArrayOutputStream legacy = new ByteArrayOutputStream();
+        PlacedBlockCodec.writeVarInt(legacy, 2);
+        writeLegacyEntry(legacy, (64 << 8) | (2 << 4) | 1, 1000L, PlacedBlockMap.FLAG_TRACK_DESPAWN, 4);
+        writeLegacyEntry(legacy, ((70 << 8) | (15 << 4) | 15) - ((64 << 8) | (2 << 4) | 1), -400L, (byte) 0, -1);
+
+        PlacedBlockMap upgraded = PlacedBlockCodec.decode(
+                PlacedBlockCodec.upgradeLegacy(legacy.toByteArray(), 0, 0), 0, 0);
+
+        assertEquals(2, upgraded.size());
+        int slot = upgraded.indexOf(first);
+        assertEquals(1000L, upgraded.placedTimeAt(slot));
+        assertEquals(PlacedBlockMap.FLAG_TRACK_DESPAWN, upgraded.flagsAt(slot));
+        assertEquals(4, upgraded.placerAt(slot));
+        assertEquals(MaterialPalette.NO_MATERIAL, upgraded.materialAt(slot));
+        slot = upgraded.indexOf(second);
+        assertEquals(600L, upgraded.placedTimeAt(slot));
+        assertEquals(PlayerPalette.NO_PLAYER, upgraded.placerAt(slot));
+    }
+
+    static void writeLegacyEntry(ByteArrayOutputStream out, int localDelta, long timeDelta, byte flags, int placer) {
+        PlacedBlockCodec.writeVarInt(out, localDelta);
+        PlacedBlockCodec.writeVarLong(out, (timeDelta << 1) ^ (timeDelta >> 63));
+        out.write(flags);
+        PlacedBlockCodec.writeVarInt(out, placer + 1);
+    }
+
+    static void assertSameEntries(PlacedBlockMap expected, PlacedBlockMap actual) {
+        assertEquals(expected.size(), actual.size());
+        expected.forEach((key, placedTime, flags, placer, material) -> {
+            int slot = actual.indexOf(key);
+            assertTrue(slot >= 0, "missing " + BlockKey.unpackX(key) + "," + BlockKey.unpackY(key) + ","
+                    + BlockKey.unpackZ(key));
+            assertEquals(placedTime, actual.placedTimeAt(slot));
+            assertEquals(flags, actual.flagsAt(slot));
+            assertEquals(placer, actual.placerAt(slot));
+            assertEquals(material, actual.materialAt(slot));
+        });
+    }
+}
@@ -0,0 +1,129 @@
+package dev.nxms.guardcore.storage;
+
+import dev.nxms.guardcore.utils.BlockKey;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlacedBlockJournalTest {
+
+    private static final Logger LOGGER = Logger.getLogger(PlacedBlockJournalTest.class.getName());
+    private static final String WORLD = "world";
+
+    private static final long FIRST = BlockKey.pack(-10, 64, -10);
+    private static final long SECOND = BlockKey.pack(100, 70, -300);
+    private static final long THIRD = BlockKey.pack(5, -20, 5);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayRestoresPutsAndRemoves() throws IOException {
+        PlacedBlockJournal journal = new PlacedBlockJournal(directory, LOGGER);
+        journal.logPut(WORLD, FIRST, 1000L, PlacedBlockMap.FLAG_TRACK_DESPAWN, -1, null, 0, "STONE");
+        journal.logPut(WORLD, SECOND, 2000L, (byte) 0, -1, null, 1, "DIRT");
+        journal.flush();
+        journal.logRemove(WORLD, SECOND);
+        journal.flush();
+        journal.close();
+
+        PlacedBlockStore store = new PlacedBlockStore(new MemoryShardStorage());
+        assertEquals(3, new PlacedBlockJournal(directory, LOGGER).replay(store));
+
+        PlacedBlockMap shard = store.getShard(WORLD, FIRST);
+        int slot = shard.indexOf(FIRST);
+        assertEquals(1000L, shard.placedTimeAt(slot));
+        assertEquals("STONE", store.getMaterialPalette().get(shard.materialAt(slot)));
+        assertFalse(store.contains(WORLD, SECOND));
+    }
+
+    @Test
+    void replayStopsAtTruncatedFrame() throws IOException {
+        Path segment = writeThreeFrames();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        PlacedBlockStore store = new PlacedBlockStore(new MemoryShardStorage());
+        assertEquals(2, new PlacedBlockJournal(directory, LOGGER).replay(store));
+        assertTrue(store.contains(WORLD, FIRST));
+        assertTrue(store.contains(WORLD, SECOND));
+        assertFalse(store.contains(WORLD, THIRD));
+    }
+
+    @Test
+    void replayStopsAtCorruptFrame() throws IOException {
+        Path segment = writeThreeFrames();
+        byte[] bytes = Files.readAllBytes(segment);
+        // Pierwszy bajt rekordów drugiej ramki (za długością i CRC)
+        int secondFrame = 8 + readInt(bytes, 0);
+        bytes[secondFrame + 8] ^= 0x55;
+        Files.write(segment, bytes);
+
+        PlacedBlockStore store = new PlacedBlockStore(new MemoryShardStorage());
+        assertEquals(1, new PlacedBlockJournal(directory, LOGGER).replay(store));
+        assertTrue(store.contains(WORLD, FIRST));
+        // Ramki za uszkodzoną są pomijane, nawet jeśli same są poprawne
+        assertFalse(store.contains(WORLD, SECOND));
+        assertFalse(store.contains(WORLD, THIRD));
+    }
+
+    /**
+     * Zapisuje trzy ramki (po jednym bloku) w jednym segmencie.
+     */
+    private Path writeThreeFrames() throws IOException {
+        PlacedBlockJournal journal = new PlacedBlockJournal(directory, LOGGER);
+        journal.logPut(WORLD, FIRST, 1L, (byte) 0, -1, null, -1, null);
+        journal.flush();
+        journal.logPut(WORLD, SECOND, 2L, (byte) 0, -1, null, -1, null);
+        journal.flush();
+        journal.logPut(WORLD, THIRD, 3L, (byte) 0, -1, null, -1, null);
+        journal.flush();
+        journal.close();
+
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("journal."))
+                    .findFirst()
+                    .orElseThrow();
+        }
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+                | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    /**
+     * Shardy wyładowanych chunków trzymane w pamięci zamiast w plikach regionów.
+     */
+    static class MemoryShardStorage implements ShardStorage {
+
+        private final Map<String, byte[]> shards = new HashMap<>();
+
+        @Override
+        public byte[] readShard(String worldName, long chunkKey) {
+            return shards.get(worldName + "/" + chunkKey);
+        }
+
+        @Override
+        public void writeShard(String worldName, long chunkKey, byte[] data) {
+            if (PlacedBlockCodec.peekCount(data) == 0) {
+                shards.remove(worldName + "/" + chunkKey);
+            } else {
+                shards.put(worldName + "/" + chunkKey, data);
+            }
+        }
+    }
+}
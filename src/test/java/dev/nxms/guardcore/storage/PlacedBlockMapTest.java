@@ -0,0 +1,88 @@
+package dev.nxms.guardcore.storage;
+
+import dev.nxms.guardcore.utils.BlockKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlacedBlockMapTest {
+
+    @Test
+    void putOverwritesExistingEntry() {
+        PlacedBlockMap map = new PlacedBlockMap();
+        long key = BlockKey.pack(-5, 70, 12);
+        map.put(key, 100L, PlacedBlockMap.FLAG_TRACK_DESPAWN, 3, 7);
+        map.put(key, 200L, PlacedBlockMap.FLAG_BYPASS_DESPAWN, 4, 8);
+
+        assertEquals(1, map.size());
+        int slot = map.indexOf(key);
+        assertEquals(200L, map.placedTimeAt(slot));
+        assertEquals(PlacedBlockMap.FLAG_BYPASS_DESPAWN, map.flagsAt(slot));
+        assertEquals(4, map.placerAt(slot));
+        assertEquals(8, map.materialAt(slot));
+    }
+
+    @Test
+    void removeShiftsFollowingEntriesBack() {
+        // Mała tablica bez powiększania - wpisy tworzą długie łańcuchy sondowania
+        PlacedBlockMap map = new PlacedBlockMap(256);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 190; i++) {
+            long key = BlockKey.pack(random.nextInt(64) - 32, random.nextInt(384) - 64, random.nextInt(64) - 32);
+            map.put(key, i, PlacedBlockMap.FLAG_TRACK_DESPAWN, i, i % 5);
+            expected.put(key, (long) i);
+        }
+        int capacity = map.capacity();
+
+        Long[] keys = expected.keySet().toArray(new Long[0]);
+        for (int i = 0; i < keys.length; i += 2) {
+            assertTrue(map.remove(keys[i]));
+            assertFalse(map.remove(keys[i]));
+            expected.remove(keys[i]);
+        }
+
+        assertEquals(capacity, map.capacity());
+        assertEquals(expected.size(), map.size());
+        for (int i = 0; i < keys.length; i++) {
+            long key = keys[i];
+            if (i % 2 == 0) {
+                assertFalse(map.contains(key));
+            } else {
+                int slot = map.indexOf(key);
+                assertTrue(slot >= 0);
+                assertEquals(expected.get(key), map.placedTimeAt(slot));
+                assertEquals((int) map.placedTimeAt(slot), map.placerAt(slot));
+                assertEquals((int) map.placedTimeAt(slot) % 5, map.materialAt(slot));
+            }
+        }
+
+        int[] visited = new int[1];
+        map.forEach((key, placedTime, flags, placer, material) -> {
+            assertEquals(expected.get(key), placedTime);
+            visited[0]++;
+        });
+        assertEquals(expected.size(), visited[0]);
+    }
+
+    @Test
+    void removingAllEntriesLeavesEmptyMap() {
+        PlacedBlockMap map = new PlacedBlockMap();
+        for (int i = 0; i < 100; i++) {
+            map.put(BlockKey.pack(i, -i, -i), i, (byte) 0, -1, -1);
+        }
+        for (int i = 99; i >= 0; i--) {
+            assertTrue(map.remove(BlockKey.pack(i, -i, -i)));
+        }
+        assertTrue(map.isEmpty());
+        for (int slot = 0; slot < map.capacity(); slot++) {
+            assertFalse(map.isUsed(slot));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package dev.nxms.guardcore.storage;
+
+import dev.nxms.guardcore.utils.BlockKey;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlacedBlockRegionFileTest {
+
+    private static final int MAGIC = 0x47435042;
+    private static final long REGION = BlockKey.chunkKey(-1, -1);
+    private static final long CORNER_CHUNK = BlockKey.chunkKey(-1, -1);
+    private static final long EDGE_CHUNK = BlockKey.chunkKey(-32, -1);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeAndReadChunksByTable() throws IOException {
+        PlacedBlockMap corner = new PlacedBlockMap();
+        corner.put(BlockKey.pack(-1, 64, -1), 10L, PlacedBlockMap.FLAG_TRACK_DESPAWN, 0, 3);
+        PlacedBlockMap edge = new PlacedBlockMap();
+        edge.put(BlockKey.pack(-512, -64, -16), 20L, (byte) 0, -1, 5);
+        edge.put(BlockKey.pack(-497, 100, -1), 30L, (byte) 0, -1, MaterialPalette.NO_MATERIAL);
+
+        LongObjectMap<byte[]> chunks = new LongObjectMap<>();
+        chunks.put(CORNER_CHUNK, PlacedBlockCodec.encode(corner));
+        chunks.put(EDGE_CHUNK, PlacedBlockCodec.encode(edge));
+        Path path = directory.resolve(PlacedBlockRegionFile.fileName(REGION));
+        PlacedBlockRegionFile.write(path, REGION, chunks);
+
+        try (FileChannel channel = PlacedBlockRegionFile.open(path)) {
+            PlacedBlockRegionFile.Header header = PlacedBlockRegionFile.readHeader(channel);
+            assertEquals(2, header.size());
+            assertEquals(3, header.getBlockCount());
+            assertNull(header.get(BlockKey.chunkKey(0, 0)));
+
+            PlacedBlockRegionFile.Entry entry = header.get(EDGE_CHUNK);
+            assertEquals(2, entry.getBlockCount());
+            assertTrue(entry.containsAny(bits(5)));
+            assertFalse(entry.containsAny(bits(3)));
+
+            PlacedBlockCodecTest.assertSameEntries(edge,
+                    PlacedBlockCodec.decode(PlacedBlockRegionFile.readChunk(channel, entry), -32, -1));
+            PlacedBlockCodecTest.assertSameEntries(corner, PlacedBlockCodec.decode(
+                    PlacedBlockRegionFile.readChunk(channel, header.get(CORNER_CHUNK)), -1, -1));
+        }
+        assertFalse(PlacedBlockRegionFile.upgrade(path));
+    }
+
+    @Test
+    void upgradeRewritesVersionOneFile() throws IOException {
+        // Shardy wersji 1 - bez materiałów
+        ByteArrayOutputStream corner = new ByteArrayOutputStream();
+        PlacedBlockCodec.writeVarInt(corner, 1);
+        PlacedBlockCodecTest.writeLegacyEntry(corner, (64 << 8) | (15 << 4) | 15, 1000L,
+                PlacedBlockMap.FLAG_TRACK_DESPAWN, 2);
+        ByteArrayOutputStream edge = new ByteArrayOutputStream();
+        PlacedBlockCodec.writeVarInt(edge, 2);
+        PlacedBlockCodecTest.writeLegacyEntry(edge, 0, 50L, (byte) 0, -1);
+        PlacedBlockCodecTest.writeLegacyEntry(edge, 1, 25L, PlacedBlockMap.FLAG_BYPASS_DESPAWN, 0);
+
+        Path path = directory.resolve(PlacedBlockRegionFile.fileName(REGION));
+        writeVersionOne(path, -1, -1, new int[]{(31 << 5) | 31, 31 << 5},
+                new byte[][]{corner.toByteArray(), edge.toByteArray()});
+
+        try (FileChannel channel = PlacedBlockRegionFile.open(path)) {
+            assertThrows(IOException.class, () -> PlacedBlockRegionFile.readHeader(channel));
+        }
+        assertTrue(PlacedBlockRegionFile.upgrade(path));
+        assertFalse(PlacedBlockRegionFile.upgrade(path));
+
+        try (FileChannel channel = PlacedBlockRegionFile.open(path)) {
+            PlacedBlockRegionFile.Header header = PlacedBlockRegionFile.readHeader(channel);
+            assertEquals(2, header.size());
+            assertEquals(3, header.getBlockCount());
+
+            PlacedBlockMap upgradedCorner = PlacedBlockCodec.decode(
+                    PlacedBlockRegionFile.readChunk(channel, header.get(CORNER_CHUNK)), -1, -1);
+            long position = BlockKey.pack(-1, 64, -1);
+            int slot = upgradedCorner.indexOf(position);
+            assertTrue(slot >= 0);
+            assertEquals(1000L, upgradedCorner.placedTimeAt(slot));
+            assertEquals(2, upgradedCorner.placerAt(slot));
+            assertEquals(MaterialPalette.NO_MATERIAL, upgradedCorner.materialAt(slot));
+
+            PlacedBlockRegionFile.Entry edgeEntry = header.get(EDGE_CHUNK);
+            assertNotNull(edgeEntry);
+            PlacedBlockMap upgradedEdge = PlacedBlockCodec.decode(
+                    PlacedBlockRegionFile.readChunk(channel, edgeEntry), -32, -1);
+            slot = upgradedEdge.indexOf(BlockKey.pack(-511, 0, -16));
+            assertEquals(75L, upgradedEdge.placedTimeAt(slot));
+            assertEquals(PlacedBlockMap.FLAG_BYPASS_DESPAWN, upgradedEdge.flagsAt(slot));
+        }
+    }
+
+    @Test
+    void corruptedFileIsRejected() throws IOException {
+        LongObjectMap<byte[]> chunks = new LongObjectMap<>();
+        PlacedBlockMap shard = new PlacedBlockMap();
+        shard.put(BlockKey.pack(-1, 64, -1), 10L, (byte) 0, -1, 0);
+        chunks.put(CORNER_CHUNK, PlacedBlockCodec.encode(shard));
+        Path path = directory.resolve(PlacedBlockRegionFile.fileName(REGION));
+        PlacedBlockRegionFile.write(path, REGION, chunks);
+
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 1] ^= 0x55;
+        Files.write(path, bytes);
+
+        try (FileChannel channel = PlacedBlockRegionFile.open(path)) {
+            PlacedBlockRegionFile.Header header = PlacedBlockRegionFile.readHeader(channel);
+            assertThrows(IOException.class, () -> PlacedBlockRegionFile.readChunk(channel, header.get(CORNER_CHUNK)));
+        }
+    }
+
+    /**
+     * Zapisuje plik regionu w wersji 1: nagłówek, CRC32 reszty pliku, potem (indeks chunka, długość, shard).
+     */
+    private static void writeVersionOne(Path path, int regionX, int regionZ, int[] locals, byte[][] shards)
+            throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int i = 0; i < locals.length; i++) {
+            body.write(locals[i] >>> 8);
+            body.write(locals[i]);
+            PlacedBlockCodec.writeVarInt(body, shards[i].length);
+            body.write(shards[i], 0, shards[i].length);
+        }
+        byte[] bodyBytes = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bodyBytes);
+
+        ByteBuffer file = ByteBuffer.allocate(21 + bodyBytes.length);
+        file.putInt(MAGIC);
+        file.put((byte) 1);
+        file.putInt(regionX);
+        file.putInt(regionZ);
+        file.putInt(locals.length);
+        file.putInt((int) crc.getValue());
+        file.put(bodyBytes);
+        Files.write(path, file.array());
+    }
+
+    private static BitSet bits(int... indices) {
+        BitSet bits = new BitSet();
+        for (int index : indices) {
+            bits.set(index);
+        }
+        return bits;
+    }
+}
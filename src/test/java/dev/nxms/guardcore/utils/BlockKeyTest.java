@@ -0,0 +1,60 @@
+package dev.nxms.guardcore.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BlockKeyTest {
+
+    // Granice współrzędnych w układzie bitów (x i z - 26 bitów, y - 12 bitów)
+    private static final int MIN_XZ = -(1 << 25);
+    private static final int MAX_XZ = (1 << 25) - 1;
+    private static final int MIN_Y = -2048;
+    private static final int MAX_Y = 2047;
+
+    @Test
+    void packRoundTripsNegativeAndBoundaryCoordinates() {
+        int[] xz = {0, 1, -1, 15, 16, -16, -17, 30_000_000, -30_000_000, MIN_XZ, MAX_XZ};
+        int[] ys = {0, 1, -1, -64, 319, MIN_Y, MAX_Y};
+
+        for (int x : xz) {
+            for (int z : xz) {
+                for (int y : ys) {
+                    long packed = BlockKey.pack(x, y, z);
+                    assertEquals(x, BlockKey.unpackX(packed), "x for " + x + "," + y + "," + z);
+                    assertEquals(y, BlockKey.unpackY(packed), "y for " + x + "," + y + "," + z);
+                    assertEquals(z, BlockKey.unpackZ(packed), "z for " + x + "," + y + "," + z);
+                }
+            }
+        }
+    }
+
+    @Test
+    void chunkKeyOfUsesFloorDivisionForNegativeCoordinates() {
+        assertEquals(BlockKey.chunkKey(0, 0), BlockKey.chunkKeyOf(BlockKey.pack(0, 64, 15)));
+        assertEquals(BlockKey.chunkKey(-1, -1), BlockKey.chunkKeyOf(BlockKey.pack(-1, 64, -16)));
+        assertEquals(BlockKey.chunkKey(-2, 1), BlockKey.chunkKeyOf(BlockKey.pack(-17, -64, 16)));
+        assertEquals(BlockKey.chunkKey(MIN_XZ >> 4, MAX_XZ >> 4),
+                BlockKey.chunkKeyOf(BlockKey.pack(MIN_XZ, MAX_Y, MAX_XZ)));
+    }
+
+    @Test
+    void chunkKeyRoundTrips() {
+        int[] chunks = {0, 1, -1, 31, 32, -32, -33, MIN_XZ >> 4, MAX_XZ >> 4};
+        for (int chunkX : chunks) {
+            for (int chunkZ : chunks) {
+                long chunkKey = BlockKey.chunkKey(chunkX, chunkZ);
+                assertEquals(chunkX, BlockKey.chunkX(chunkKey));
+                assertEquals(chunkZ, BlockKey.chunkZ(chunkKey));
+            }
+        }
+    }
+
+    @Test
+    void regionKeyOfGroups32ChunksWithNegativeCoordinates() {
+        assertEquals(BlockKey.chunkKey(0, 0), BlockKey.regionKeyOf(BlockKey.chunkKey(31, 0)));
+        assertEquals(BlockKey.chunkKey(1, 0), BlockKey.regionKeyOf(BlockKey.chunkKey(32, 0)));
+        assertEquals(BlockKey.chunkKey(-1, -1), BlockKey.regionKeyOf(BlockKey.chunkKey(-1, -32)));
+        assertEquals(BlockKey.chunkKey(-2, -2), BlockKey.regionKeyOf(BlockKey.chunkKey(-33, -33)));
+    }
+}